@@ -16,23 +16,21 @@ public class AcademicStaff extends UserBase {
         this.title = title;
     }
 
-    // The maximum number of items allowed is given here.
-    @Override
-    public int getMaxItems() {
-        return 3;
-    }
+    // These methods return the department, faculty and title of the staff member.
+    public String getDepartment() { return department; }
+    public String getFaculty() { return faculty; }
+    public String getTitle() { return title; }
 
-    // The limit of days before penalty is returned here.
+    // Academic staff follow the academic rules of the loan policy.
     @Override
-    public int getOverdueLimit() {
-        return 15;
+    public LoanPolicy.UserClass getUserClass() {
+        return LoanPolicy.UserClass.ACADEMIC;
     }
 
     // This method is used to show the academic staff's information clearly.
     @Override
-    public String toString() {
-        return "------ User Information for " + id + " ------\n" +
-                "Name: " + title + " " + name + " Phone: " + phoneNumber + "\n" +
-                "Faculty: " + faculty + " Department: " + department;
+    public void display(StringBuilder out) {
+        displayHeader(out, title + " " + name);
+        out.append("Faculty: ").append(faculty).append(" Department: ").append(department);
     }
 }
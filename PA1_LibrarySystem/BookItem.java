@@ -14,30 +14,31 @@ public class BookItem extends Item {
         this.genre = genre;
     }
 
+    // These methods return the author and genre of the book.
+    public String getAuthor() { return author; }
+    public String getGenre() { return genre; }
+
     // This method checks if the book can be borrowed, and updates status.
     @Override
-    public boolean borrowItem(String userId, String borrowDate) {
-        if (this.type.equalsIgnoreCase("reference") || isBorrowed) return false;
+    public synchronized boolean borrowItem(int borrower, int borrowDay) {
+        if (type == ItemType.REFERENCE || isBorrowed) return false;
         isBorrowed = true;
-        setBorrowInfo(borrowDate, userId);
+        setBorrowInfo(borrowDay, borrower);
         return true;
     }
 
     // This method is called when the book is returned to the library.
     @Override
-    public void returnItem(String returnDate) {
+    public synchronized void returnItem(int returnDay) {
         isBorrowed = false;
         clearBorrowInfo();
     }
 
     // This method is used to display the current information of the book.
     @Override
-    public String display() {
-        String status = isBorrowed ? "Borrowed" : "Available";
-        String extra = isBorrowed ? " Borrowed Date: " + borrowedDate + " Borrowed by: " + borrowedBy : "";
-        return "------ Item Information for " + id + " ------\n" +
-                "ID: " + id + " Name: " + title + " Status: " + status + extra + "\n" +
-                "Author: " + author + " Genre: " + genre;
+    public void display(StringBuilder out) {
+        displayStatus(out);
+        out.append("Author: ").append(author).append(" Genre: ").append(genre);
     }
 
     // This method is used to return display information as a string.
@@ -0,0 +1,213 @@
+package Library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// This class is used to look up items by their author, genre, director, publisher or category.
+// For every attribute value and kind of item it keeps a posting: the positions of the items with
+// that value, sorted by item ID, and a bitset of the ones that are not borrowed. The items report
+// every borrow and return to the index, so the bitsets stay up to date, and a query for available
+// items only visits their set bits. A query never walks items of another value or another kind.
+// Only the index that was made last for a catalog is kept up to date.
+public class CatalogIndex {
+
+    // These are the attributes that can be searched.
+    public enum Attribute { AUTHOR, GENRE, DIRECTOR, PUBLISHER, CATEGORY }
+
+    // These are the kinds of items; every item has exactly two attributes, which are listed here.
+    private enum Kind {
+        BOOK(BookItem.class), MAGAZINE(MagazineItem.class), DVD(DVDItem.class);
+
+        final Class<? extends Item> type;
+
+        Kind(Class<? extends Item> type) {
+            this.type = type;
+        }
+    }
+
+    // These fields are used to keep the items by position and the postings of every attribute value by kind.
+    private final Item[] items;
+    private final Map<Attribute, Map<String, Posting[]>> postings;
+    // These fields are used to find the two postings of an item and its place in each of them,
+    // at 2 * position and 2 * position + 1, when the item is borrowed or returned.
+    private final Posting[] memberPostings;
+    private final int[] memberSlots;
+
+    // This constructor builds the index over the items, which must be given in ID order.
+    public CatalogIndex(Iterable<Item> catalog) {
+        List<Item> list = new ArrayList<>();
+        Map<Attribute, Map<String, IntList[]>> building = new EnumMap<>(Attribute.class);
+        for (Attribute attribute : Attribute.values()) building.put(attribute, new HashMap<>());
+
+        for (Item item : catalog) {
+            int position = list.size();
+            list.add(item);
+            if (item instanceof BookItem) {
+                BookItem book = (BookItem) item;
+                add(building, Attribute.AUTHOR, Kind.BOOK, book.getAuthor(), position);
+                add(building, Attribute.GENRE, Kind.BOOK, book.getGenre(), position);
+            } else if (item instanceof MagazineItem) {
+                MagazineItem magazine = (MagazineItem) item;
+                add(building, Attribute.PUBLISHER, Kind.MAGAZINE, magazine.getPublisher(), position);
+                add(building, Attribute.CATEGORY, Kind.MAGAZINE, magazine.getCategory(), position);
+            } else if (item instanceof DVDItem) {
+                DVDItem dvd = (DVDItem) item;
+                add(building, Attribute.DIRECTOR, Kind.DVD, dvd.getDirector(), position);
+                add(building, Attribute.CATEGORY, Kind.DVD, dvd.getCategory(), position);
+            }
+        }
+
+        this.items = list.toArray(new Item[0]);
+        this.memberPostings = new Posting[2 * items.length];
+        this.memberSlots = new int[2 * items.length];
+        this.postings = new EnumMap<>(Attribute.class);
+        for (Map.Entry<Attribute, Map<String, IntList[]>> entry : building.entrySet()) {
+            Map<String, Posting[]> values = new HashMap<>(entry.getValue().size() * 2);
+            for (Map.Entry<String, IntList[]> value : entry.getValue().entrySet()) {
+                Posting[] byKind = new Posting[Kind.values().length];
+                for (int k = 0; k < byKind.length; k++) {
+                    if (value.getValue()[k] != null) byKind[k] = join(value.getValue()[k].toArray());
+                }
+                values.put(value.getKey(), byKind);
+            }
+            postings.put(entry.getKey(), values);
+        }
+
+        // The bits are set by the items themselves, so a loan made meanwhile on another thread is not missed.
+        for (int position = 0; position < items.length; position++) {
+            if (memberPostings[2 * position] != null) items[position].attachIndex(this, position);
+        }
+    }
+
+    // This method returns the items with the value, in ID order. Case and outer spaces are ignored.
+    public List<Item> find(Attribute attribute, String value, boolean availableOnly) {
+        return find(attribute, value, Item.class, availableOnly);
+    }
+
+    // This method returns the items of one kind (for example DVDItem.class) with the value.
+    public List<Item> find(Attribute attribute, String value, Class<? extends Item> kind, boolean availableOnly) {
+        Posting[] byKind = postings.get(attribute).get(normalize(value));
+        if (byKind == null) return Collections.emptyList();
+        int[] positions = null;
+        for (Kind k : Kind.values()) {
+            Posting posting = byKind[k.ordinal()];
+            if (posting == null || !kind.isAssignableFrom(k.type)) continue;
+            int[] found = posting.positions(availableOnly);
+            positions = positions == null ? found : merge(positions, found);
+        }
+        if (positions == null) return Collections.emptyList();
+        List<Item> result = new ArrayList<>(positions.length);
+        for (int position : positions) result.add(items[position]);
+        return result;
+    }
+
+    // This method returns how many items have the value, without looking at them.
+    public int count(Attribute attribute, String value) {
+        Posting[] byKind = postings.get(attribute).get(normalize(value));
+        if (byKind == null) return 0;
+        int count = 0;
+        for (Posting posting : byKind) {
+            if (posting != null) count += posting.positions.length;
+        }
+        return count;
+    }
+
+    // This method is called by an item, with its lock held, when it is borrowed or returned.
+    void setAvailable(int position, boolean available) {
+        for (int member = 2 * position; member < 2 * position + 2; member++) {
+            Posting posting = memberPostings[member];
+            if (posting != null) posting.setAvailable(memberSlots[member], available);
+        }
+    }
+
+    // This method makes the posting of the positions and records where every item sits in it.
+    private Posting join(int[] positions) {
+        Posting posting = new Posting(positions);
+        for (int slot = 0; slot < positions.length; slot++) {
+            int member = 2 * positions[slot];
+            if (memberPostings[member] != null) member++;
+            memberPostings[member] = posting;
+            memberSlots[member] = slot;
+        }
+        return posting;
+    }
+
+    // This method merges two sorted position lists; a value is only in the postings of one kind,
+    // so the lists never share a position.
+    private static int[] merge(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) merged[n++] = a[i] < b[j] ? a[i++] : b[j++];
+        while (i < a.length) merged[n++] = a[i++];
+        while (j < b.length) merged[n++] = b[j++];
+        return merged;
+    }
+
+    private static void add(Map<Attribute, Map<String, IntList[]>> building, Attribute attribute,
+                            Kind kind, String value, int position) {
+        IntList[] byKind = building.get(attribute).computeIfAbsent(normalize(value),
+                key -> new IntList[Kind.values().length]);
+        if (byKind[kind.ordinal()] == null) byKind[kind.ordinal()] = new IntList();
+        byKind[kind.ordinal()].add(position);
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // This class is used to keep the items of one value and kind, and which of them are available.
+    // Bit i of the bitset is set when the item at positions[i] is not borrowed.
+    private static final class Posting {
+        final int[] positions;
+        private final long[] available;
+        private int availableCount;
+
+        Posting(int[] positions) {
+            this.positions = positions;
+            this.available = new long[(positions.length + 63) >>> 6];
+        }
+
+        synchronized void setAvailable(int slot, boolean free) {
+            long bit = 1L << slot;
+            int word = slot >>> 6;
+            if (((available[word] & bit) != 0) == free) return;
+            available[word] ^= bit;
+            availableCount += free ? 1 : -1;
+        }
+
+        // This method returns the positions of all items, or of the available ones found from the set bits.
+        // The array of all positions is never changed, so it is given out as it is.
+        synchronized int[] positions(boolean availableOnly) {
+            if (!availableOnly) return positions;
+            int[] found = new int[availableCount];
+            int n = 0;
+            for (int word = 0; word < available.length; word++) {
+                for (long bits = available[word]; bits != 0; bits &= bits - 1) {
+                    found[n++] = positions[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                }
+            }
+            return found;
+        }
+    }
+
+    // This class is used to collect the positions of one value while the index is built.
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
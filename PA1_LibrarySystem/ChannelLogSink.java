@@ -0,0 +1,129 @@
+package Library;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// This class is used to stream log lines to a file while the commands are processed.
+// Only one buffer of text is held in memory, so long command files do not fill the heap.
+public class ChannelLogSink implements LogSink {
+
+    // This is the size of the character buffer in front of the channel.
+    private static final int BUFFER_SIZE = 1 << 16;
+    // This is the size of the piece a CharSequence line is copied in.
+    private static final int CHUNK_SIZE = 1 << 10;
+
+    // These fields are used to keep the open file and the buffered writer on top of it.
+    private final FileChannel channel;
+    private final Writer writer;
+    private final String lineSeparator;
+    private final char[] chunk = new char[CHUNK_SIZE];
+    private boolean failed;
+
+    // This constructor opens (and empties) the output file for writing.
+    public ChannelLogSink(String filename) throws IOException {
+        this(filename, 0);
+    }
+
+    // This constructor keeps the first keepBytes bytes of the output file and writes after them.
+    // It is used to go on with an output file that an earlier run wrote.
+    public ChannelLogSink(String filename, long keepBytes) throws IOException {
+        this(filename, keepBytes, Charset.defaultCharset());
+    }
+
+    // This constructor writes the text in the given charset instead of the default one.
+    ChannelLogSink(String filename, long keepBytes, Charset charset) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(keepBytes);
+        channel.position(keepBytes);
+        // Characters the charset cannot hold are replaced, as PrintWriter does in writeOutput,
+        // so a name or title like that does not stop the output.
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.writer = new BufferedWriter(Channels.newWriter(channel, encoder, -1), BUFFER_SIZE);
+        this.lineSeparator = System.lineSeparator();
+        this.failed = false;
+    }
+
+    // This method writes the line and a line separator into the buffer.
+    @Override
+    public void write(String line) {
+        if (failed) return;
+        try {
+            writer.write(line);
+            writer.write(lineSeparator);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // This method copies the characters into the buffer without making a string first.
+    // Writer.append would call toString on the line, so the characters are moved through
+    // a reused char array instead; a StringBuilder is copied with one getChars per piece.
+    @Override
+    public void write(CharSequence line) {
+        if (failed) return;
+        try {
+            int length = line.length();
+            for (int start = 0; start < length; start += CHUNK_SIZE) {
+                int end = Math.min(length, start + CHUNK_SIZE);
+                if (line instanceof StringBuilder) {
+                    ((StringBuilder) line).getChars(start, end, chunk, 0);
+                } else {
+                    for (int i = start; i < end; i++) chunk[i - start] = line.charAt(i);
+                }
+                writer.write(chunk, 0, end - start);
+            }
+            writer.write(lineSeparator);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // This method pushes the buffered text to the channel.
+    @Override
+    public void flush() {
+        if (failed) return;
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // This method pushes the buffered text to the channel and waits until it is on the disk.
+    public void force() throws IOException {
+        writer.flush();
+        channel.force(true);
+    }
+
+    // This method returns how many bytes of the file are written, including the buffered text.
+    public long position() throws IOException {
+        writer.flush();
+        return channel.position();
+    }
+
+    // This method flushes the remaining text and closes the file.
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (!failed) e.printStackTrace();
+        }
+    }
+
+    // The first error is reported once and later lines are dropped, like PrintWriter does.
+    private void fail(IOException e) {
+        failed = true;
+        e.printStackTrace();
+    }
+}
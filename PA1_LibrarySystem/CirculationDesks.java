@@ -0,0 +1,148 @@
+package Library;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+// This class is used to run several circulation desks on the same library at the same time.
+// Every desk reads its own command file on its own thread and writes to its own log sink.
+// A borrow, return or pay holds the lock stripe of its user, so the loans and the penalty
+// of one user are changed by one desk at a time. Items guard themselves: their borrow and
+// return methods are synchronized, which means an item can never be lent to two users.
+// Commands of unrelated users and items therefore run on all desks in parallel.
+public class CirculationDesks {
+
+    // These fields are used to keep the shared library and the user lock stripes.
+    private final LibrarySystem system;
+    private final ReentrantLock[] userLocks;
+    private final int mask;
+
+    // This constructor is used to share a loaded library between desks.
+    // The number of stripes is rounded up to a power of two.
+    public CirculationDesks(LibrarySystem system, int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.system = system;
+        this.userLocks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) userLocks[i] = new ReentrantLock();
+        this.mask = size - 1;
+    }
+
+    // This method runs one desk for each command file and waits until all of them are done.
+    // The catalog must not be reloaded while the desks are running.
+    public void run(String[] commandFiles, LogSink[] sinks) throws IOException, InterruptedException {
+        if (commandFiles.length != sinks.length) {
+            throw new IllegalArgumentException("Every desk needs one command file and one sink");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(commandFiles.length);
+        try {
+            List<Future<?>> desks = new ArrayList<>();
+            for (int i = 0; i < commandFiles.length; i++) {
+                String file = commandFiles[i];
+                LogSink sink = sinks[i];
+                desks.add(pool.submit(() -> {
+                    runDesk(file, sink);
+                    return null;
+                }));
+            }
+            for (Future<?> desk : desks) {
+                try {
+                    desk.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // This method reads the commands of one desk. The lines are decoded by the same
+    // CommandDecoder as in LibrarySystem; every desk has its own, since it keeps a date cache.
+    // Only borrow, return and pay are circulation commands; the display commands are left to LibrarySystem.
+    private void runDesk(String filename, LogSink out) throws IOException {
+        CommandDecoder decoder = new CommandDecoder();
+        Command command = new Command();
+        LocalDate currentDate = null;
+        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || !decoder.decode(line, command)) continue;
+                switch (command.opcode) {
+                    case Command.BORROW:
+                        currentDate = command.date;
+                        borrow(command.userId, command.itemId, currentDate, out);
+                        break;
+                    case Command.RETURN:
+                        LocalDate returnDate = (currentDate != null) ? currentDate : LocalDate.now();
+                        returnItem(command.userId, command.itemId, returnDate, out);
+                        break;
+                    case Command.PAY:
+                        pay(command.userId, out);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        out.flush();
+    }
+
+    // This method lends an item while the user's stripe is locked.
+    public void borrow(String userId, String itemId, LocalDate date, LogSink out) {
+        UserBase user = system.getUsers().get(userId);
+        Item item = system.getItems().get(itemId);
+        if (user == null || item == null) return;
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            system.borrow(user, item, date, out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // This method takes an item back while the user's stripe is locked.
+    public void returnItem(String userId, String itemId, LocalDate date, LogSink out) {
+        UserBase user = system.getUsers().get(userId);
+        Item item = system.getItems().get(itemId);
+        if (user == null || item == null) return;
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            system.returnItem(user, item, date, out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // This method clears a penalty while the user's stripe is locked.
+    public void pay(String userId, LogSink out) {
+        UserBase user = system.getUsers().get(userId);
+        if (user == null) return;
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            system.pay(user, out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // This method picks the stripe of a user ID, spreading the high bits of the hash.
+    private ReentrantLock lockFor(String userId) {
+        int h = userId.hashCode();
+        return userLocks[(h ^ (h >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,23 @@
+package Library;
+
+import java.time.LocalDate;
+
+// This class is used to keep one decoded command line as an opcode and its arguments.
+// The same objects are reused for every block of commands, so decoding makes no garbage of its own.
+final class Command {
+
+    // These opcodes tell which command the record holds.
+    static final byte BORROW = 1;
+    static final byte RETURN = 2;
+    static final byte PAY = 3;
+    static final byte DISPLAY_USERS = 4;
+    static final byte DISPLAY_ITEMS = 5;
+
+    // These fields are used to keep the arguments; the ones a command does not use are null.
+    byte opcode;
+    String userId;
+    String itemId;
+    LocalDate date;
+    // The options of a display command, or null to show everything.
+    DisplayOptions display;
+}
@@ -0,0 +1,117 @@
+package Library;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+// This class is used to turn the text of a command line into a Command record.
+// The line is scanned once for its commas instead of being split, and the dates are
+// parsed only once per distinct date text, since long command files repeat the same days.
+final class CommandDecoder {
+
+    // This formatter is used for the dd/MM/yyyy dates in the command file.
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // The date cache is emptied when it grows past this size.
+    private static final int MAX_CACHED_DATES = 4096;
+    // Only the first fields matter: the command and up to three arguments.
+    private static final int MAX_FIELDS = 4;
+
+    // These fields are used to remember dates that have been parsed before.
+    private final Map<String, LocalDate> dateCache = new HashMap<>();
+    private String lastDateText = "";
+    private LocalDate lastDate;
+
+    // These arrays keep the trimmed start and end of the fields of the current line.
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+
+    // This method fills the record from the line and returns false for lines that do nothing,
+    // such as unknown commands or commands with too few fields.
+    boolean decode(String line, Command into) {
+        int fields = scan(line);
+        byte opcode = opcode(line, fields);
+        into.opcode = opcode;
+        into.userId = null;
+        into.itemId = null;
+        into.date = null;
+        into.display = null;
+        switch (opcode) {
+            case Command.BORROW:
+                into.userId = field(line, 1);
+                into.itemId = field(line, 2);
+                into.date = date(line, 3);
+                return true;
+            case Command.RETURN:
+                into.userId = field(line, 1);
+                into.itemId = field(line, 2);
+                return true;
+            case Command.PAY:
+                into.userId = field(line, 1);
+                return true;
+            case Command.DISPLAY_USERS:
+            case Command.DISPLAY_ITEMS:
+                if (fields > 1) into.display = DisplayOptions.parse(line.split(",", -1), 1);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // This method finds the first fields of the line and returns how many there are, at most MAX_FIELDS.
+    private int scan(String line) {
+        int count = 0;
+        int start = 0;
+        int length = line.length();
+        while (count < MAX_FIELDS) {
+            int end = line.indexOf(',', start);
+            if (end < 0) end = length;
+            int s = start;
+            int e = end;
+            while (s < e && line.charAt(s) <= ' ') s++;
+            while (e > s && line.charAt(e - 1) <= ' ') e--;
+            starts[count] = s;
+            ends[count] = e;
+            count++;
+            if (end == length) break;
+            start = end + 1;
+        }
+        return count;
+    }
+
+    // This method reads the command name, ignoring case, and checks it has enough fields.
+    private byte opcode(String line, int fields) {
+        if (is(line, "borrow")) return fields >= 4 ? Command.BORROW : 0;
+        if (is(line, "return")) return fields >= 3 ? Command.RETURN : 0;
+        if (is(line, "pay")) return fields >= 2 ? Command.PAY : 0;
+        if (is(line, "displayusers")) return Command.DISPLAY_USERS;
+        if (is(line, "displayitems")) return Command.DISPLAY_ITEMS;
+        return 0;
+    }
+
+    private boolean is(String line, String name) {
+        return ends[0] - starts[0] == name.length() && line.regionMatches(true, starts[0], name, 0, name.length());
+    }
+
+    private String field(String line, int index) {
+        return line.substring(starts[index], ends[index]);
+    }
+
+    // This method parses a date field. The last date is checked first without making a string,
+    // because consecutive commands usually share their date.
+    private LocalDate date(String line, int index) {
+        int s = starts[index];
+        int length = ends[index] - s;
+        if (length == lastDateText.length() && line.regionMatches(s, lastDateText, 0, length)) return lastDate;
+        String text = line.substring(s, s + length);
+        LocalDate date = dateCache.get(text);
+        if (date == null) {
+            date = LocalDate.parse(text, DATE_FORMAT);
+            if (dateCache.size() >= MAX_CACHED_DATES) dateCache.clear();
+            dateCache.put(text, date);
+        }
+        lastDateText = text;
+        lastDate = date;
+        return date;
+    }
+}
@@ -16,30 +16,33 @@ public class DVDItem extends Item {
         this.runtime = runtime;
     }
 
+    // These methods return the director, category and runtime of the DVD.
+    public String getDirector() { return director; }
+    public String getCategory() { return category; }
+    public int getRuntime() { return runtime; }
+
     // This method checks if the DVD can be borrowed and sets borrow info.
     @Override
-    public boolean borrowItem(String userId, String borrowDate) {
+    public synchronized boolean borrowItem(int borrower, int borrowDay) {
         if (isBorrowed) return false;
         isBorrowed = true;
-        setBorrowInfo(borrowDate, userId);
+        setBorrowInfo(borrowDay, borrower);
         return true;
     }
 
     // This method is used to return the DVD and clear its borrow data.
     @Override
-    public void returnItem(String returnDate) {
+    public synchronized void returnItem(int returnDay) {
         isBorrowed = false;
         clearBorrowInfo();
     }
 
     // This method shows the DVD information in formatted text.
     @Override
-    public String display() {
-        String status = isBorrowed ? "Borrowed" : "Available";
-        String extra = isBorrowed ? " Borrowed Date: " + borrowedDate + " Borrowed by: " + borrowedBy : "";
-        return "------ Item Information for " + id + " ------\n" +
-                "ID: " + id + " Name: " + title + " Status: " + status + extra + "\n" +
-                "Director: " + director + " Category: " + category + " Runtime: " + runtime + " min";
+    public void display(StringBuilder out) {
+        displayStatus(out);
+        out.append("Director: ").append(director).append(" Category: ").append(category)
+                .append(" Runtime: ").append(runtime).append(" min");
     }
 
     // This method returns the same info as display() as a string.
@@ -0,0 +1,96 @@
+package Library;
+
+import java.util.NavigableMap;
+
+// This class is used to choose which part of the items or users a display command shows.
+// It is written after the command name, for example "displayItems,from=B100,to=B199,borrowed,size=20,page=2".
+// Pages are counted from 1; without a size every matching entry is on the first page.
+public class DisplayOptions {
+
+    // These fields are used to keep the ID range, the borrowed filter and the page.
+    private String fromId;
+    private String toId;
+    private boolean borrowedOnly;
+    private int pageSize = Integer.MAX_VALUE;
+    private int page = 1;
+
+    // These methods set the options when they are made from code.
+    public DisplayOptions range(String fromId, String toId) {
+        this.fromId = fromId;
+        this.toId = toId;
+        return this;
+    }
+
+    public DisplayOptions borrowedOnly(boolean borrowedOnly) {
+        this.borrowedOnly = borrowedOnly;
+        return this;
+    }
+
+    public DisplayOptions page(int page, int pageSize) {
+        if (page < 1 || pageSize < 1) throw new IllegalArgumentException("Page and page size must be positive");
+        this.page = page;
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    // This method reads the options from the fields after the command name.
+    // It returns null when none of them is an option, so the display is shown in full as before.
+    public static DisplayOptions parse(String[] fields, int first) {
+        DisplayOptions options = new DisplayOptions();
+        boolean found = false;
+        for (int i = first; i < fields.length; i++) {
+            String field = fields[i].trim();
+            int equals = field.indexOf('=');
+            String key = (equals < 0 ? field : field.substring(0, equals)).trim().toLowerCase();
+            String value = equals < 0 ? "" : field.substring(equals + 1).trim();
+            try {
+                switch (key) {
+                    case "borrowed":
+                        options.borrowedOnly = true;
+                        break;
+                    case "from":
+                        options.fromId = value;
+                        break;
+                    case "to":
+                        options.toId = value;
+                        break;
+                    case "page":
+                        options.page = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "size":
+                        options.pageSize = Math.max(1, Integer.parseInt(value));
+                        break;
+                    default:
+                        continue;
+                }
+                found = true;
+            } catch (NumberFormatException e) {
+                // A page or size that is not a number is ignored like an unknown option
+            }
+        }
+        return found ? options : null;
+    }
+
+    // This method gives the part of the map between the from and to IDs, both included.
+    <T> NavigableMap<String, T> select(NavigableMap<String, T> map) {
+        if (fromId != null && toId != null) {
+            return fromId.compareTo(toId) <= 0 ? map.subMap(fromId, true, toId, true) : map.subMap(fromId, true, fromId, false);
+        }
+        if (fromId != null) return map.tailMap(fromId, true);
+        if (toId != null) return map.headMap(toId, true);
+        return map;
+    }
+
+    // These methods give the filter and the position of the page among the matching entries.
+    boolean isBorrowedOnly() {
+        return borrowedOnly;
+    }
+
+    long firstIndex() {
+        return (long) (page - 1) * pageSize;
+    }
+
+    int pageSize() {
+        return pageSize;
+    }
+}
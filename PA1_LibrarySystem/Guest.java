@@ -1,7 +1,5 @@
 package Library;
 
-import java.time.LocalDate;
-
 // This class is used to define a guest user in the system.
 public class Guest extends UserBase {
 
@@ -14,31 +12,19 @@ public class Guest extends UserBase {
         this.occupation = occupation;
     }
 
-    // The maximum number of items that can be borrowed is given here.
-    @Override
-    public int getMaxItems() {
-        return 1;
-    }
-
-    // The number of days before penalty is returned here.
-    @Override
-    public int getOverdueLimit() {
-        return 7;
-    }
+    // This method returns the occupation of the guest.
+    public String getOccupation() { return occupation; }
 
-    // This method blocks rare and limited items from being borrowed.
+    // Guests follow the guest rules of the loan policy.
     @Override
-    public boolean borrowItem(Item item, LocalDate borrowDate) {
-        if (item.getType().equalsIgnoreCase("rare") || item.getType().equalsIgnoreCase("limited"))
-            return false;
-        return super.borrowItem(item, borrowDate);
+    public LoanPolicy.UserClass getUserClass() {
+        return LoanPolicy.UserClass.GUEST;
     }
 
-    // This method returns guest user information in a readable format.
+    // This method writes guest user information in a readable format.
     @Override
-    public String toString() {
-        return "------ User Information for " + id + " ------\n" +
-                "Name: " + name + " Phone: " + phoneNumber + "\n" +
-                "Occupation: " + occupation;
+    public void display(StringBuilder out) {
+        displayHeader(out, name);
+        out.append("Occupation: ").append(occupation);
     }
 }
@@ -0,0 +1,125 @@
+package Library;
+
+import java.util.Arrays;
+
+// This class is used to keep the users waiting for one item, first come first served.
+// The users are kept as their int handles in a ring buffer, so a hold costs four bytes
+// and taking the next holder is O(1). The buffer starts small, doubles while it fills up
+// to the limit, and goes back to its small size when it is emptied, so an item that was
+// popular once does not keep a large array forever. The handles are also kept in a small
+// open-addressing set beside the buffer, so checking if a user already waits is O(1).
+final class HoldQueue {
+
+    // This is the size of the buffer when the queue is created or emptied.
+    private static final int INITIAL_CAPACITY = 4;
+
+    // These fields are used to keep the handles, the position of the first one and the count.
+    private final int limit;
+    private int[] handles;
+    private int head;
+    private int size;
+    // This table keeps the same handles for contains; its length is a power of two at least
+    // twice the buffer length, and free slots hold Item.NO_BORROWER.
+    private int[] members;
+
+    // This constructor makes an empty queue that holds at most limit users.
+    HoldQueue(int limit) {
+        if (limit < 1) throw new IllegalArgumentException("Hold limit must be at least 1: " + limit);
+        this.limit = limit;
+        this.handles = new int[Math.min(INITIAL_CAPACITY, limit)];
+        this.members = newMembers(handles.length);
+    }
+
+    // This method adds a user at the end and returns false when the queue is full.
+    boolean offer(int handle) {
+        if (size == limit) return false;
+        if (size == handles.length) grow();
+        handles[(head + size) % handles.length] = handle;
+        size++;
+        addMember(handle);
+        return true;
+    }
+
+    // This method takes the first user, or returns Item.NO_BORROWER when nobody is waiting.
+    int poll() {
+        if (size == 0) return Item.NO_BORROWER;
+        int handle = handles[head];
+        head = (head + 1) % handles.length;
+        size--;
+        if (size == 0) {
+            head = 0;
+            if (handles.length > INITIAL_CAPACITY) {
+                handles = new int[Math.min(INITIAL_CAPACITY, limit)];
+                members = newMembers(handles.length);
+                return handle;
+            }
+        }
+        removeMember(handle);
+        return handle;
+    }
+
+    // This method returns the first user without taking it, or Item.NO_BORROWER when nobody is waiting.
+    int peek() {
+        return size == 0 ? Item.NO_BORROWER : handles[head];
+    }
+
+    // This method checks if the user is already waiting.
+    boolean contains(int handle) {
+        int mask = members.length - 1;
+        for (int slot = mix(handle) & mask; members[slot] != Item.NO_BORROWER; slot = (slot + 1) & mask) {
+            if (members[slot] == handle) return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // This method doubles the buffer, without going over the limit, and puts the first handle at 0.
+    private void grow() {
+        int[] bigger = new int[(int) Math.min((long) handles.length * 2, limit)];
+        for (int i = 0; i < size; i++) bigger[i] = handles[(head + i) % handles.length];
+        handles = bigger;
+        head = 0;
+        members = newMembers(bigger.length);
+        for (int i = 0; i < size; i++) addMember(bigger[i]);
+    }
+
+    private void addMember(int handle) {
+        int mask = members.length - 1;
+        int slot = mix(handle) & mask;
+        while (members[slot] != Item.NO_BORROWER) slot = (slot + 1) & mask;
+        members[slot] = handle;
+    }
+
+    // This method frees the slot of the handle and moves the handles after it back into the gap,
+    // so that every handle can still be found from its own slot without tombstones.
+    private void removeMember(int handle) {
+        int mask = members.length - 1;
+        int slot = mix(handle) & mask;
+        while (members[slot] != handle) slot = (slot + 1) & mask;
+        int gap = slot;
+        for (slot = (slot + 1) & mask; members[slot] != Item.NO_BORROWER; slot = (slot + 1) & mask) {
+            int home = mix(members[slot]) & mask;
+            // The handle may move to the gap unless its home lies cyclically after the gap and up to its slot
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                members[gap] = members[slot];
+                gap = slot;
+            }
+        }
+        members[gap] = Item.NO_BORROWER;
+    }
+
+    private static int[] newMembers(int capacity) {
+        int[] table = new int[Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) << 1];
+        Arrays.fill(table, Item.NO_BORROWER);
+        return table;
+    }
+
+    // Handles are given out one after another, so they are spread over the table before probing.
+    private static int mix(int handle) {
+        int h = handle * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
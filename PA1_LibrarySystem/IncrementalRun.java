@@ -0,0 +1,132 @@
+package Library;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+// This class is used to run the library job again and again on a command file that only grows.
+// After every run it keeps a checkpoint: how far the command file was read, how long the output
+// was before the final list of items, the date of the last borrow, and a snapshot of the library.
+// The next run restores the snapshot, cuts the old final list off the output, runs only the new
+// commands and writes their lines and a new final list, so its cost follows the new commands.
+// The snapshots take turns between two files, and the checkpoint is replaced only after the output
+// and the new snapshot are on the disk, so a crash always leaves a checkpoint that matches its
+// snapshot and never points past output that was lost.
+public class IncrementalRun {
+
+    // These values are written at the start of the checkpoint to recognise it.
+    private static final int MAGIC = 0x4C494243;
+    private static final int VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    public static void main(String[] args) {
+
+        // This part checks if the correct number of arguments is given.
+        if (args.length != 5) {
+            System.out.println("Wrong usage! Try again.");
+            return;
+        }
+        try {
+            run(args[0], args[1], args[2], args[3], args[4]);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // This method runs the commands added since the last checkpoint, or all of them the first time.
+    // A checkpoint that does not fit the files any more, for example because the command file
+    // was replaced by a shorter one, is ignored and everything is run again.
+    public static void run(String itemsFile, String usersFile, String commandFile, String outputFile,
+                           String checkpointFile) throws IOException {
+        Checkpoint previous = Checkpoint.read(checkpointFile);
+        if (previous != null && !previous.fits(commandFile, outputFile)) previous = null;
+
+        LibrarySystem system = new LibrarySystem();
+        if (previous == null) {
+            system.loadItems(itemsFile);
+            system.loadUsers(usersFile);
+        } else {
+            LibrarySnapshot.restore(system, snapshotFile(checkpointFile, previous.generation));
+            system.setCurrentDate(previous.currentDate);
+        }
+
+        Checkpoint next = new Checkpoint();
+        next.generation = previous == null ? 0 : 1 - previous.generation;
+        try (ChannelLogSink sink = new ChannelLogSink(outputFile, previous == null ? 0 : previous.outputOffset)) {
+            system.setLogSink(sink);
+            next.commandOffset = system.processCommandsFrom(commandFile, previous == null ? 0 : previous.commandOffset);
+            next.outputOffset = sink.position();
+            next.currentDate = system.getCurrentDate();
+            system.writeFinalState();
+            sink.force();
+        }
+        LibrarySnapshot.save(system, snapshotFile(checkpointFile, next.generation));
+        next.write(checkpointFile);
+    }
+
+    private static String snapshotFile(String checkpointFile, int generation) {
+        return checkpointFile + ".snapshot" + generation;
+    }
+
+    // This class is used to keep the offsets and the date that a run leaves for the next one.
+    private static final class Checkpoint {
+        int generation;
+        long commandOffset;
+        long outputOffset;
+        LocalDate currentDate;
+
+        // This method reads a checkpoint, or returns null if there is none yet.
+        static Checkpoint read(String filename) throws IOException {
+            Path path = Paths.get(filename);
+            if (!Files.exists(path)) return null;
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                if (in.readInt() != MAGIC) throw new IOException("Not a library checkpoint: " + filename);
+                int version = in.readInt();
+                if (version != VERSION) throw new IOException("Unsupported checkpoint version " + version);
+                Checkpoint checkpoint = new Checkpoint();
+                checkpoint.generation = in.readInt();
+                checkpoint.commandOffset = in.readLong();
+                checkpoint.outputOffset = in.readLong();
+                long day = in.readLong();
+                checkpoint.currentDate = day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+                return checkpoint;
+            }
+        }
+
+        // The files must still be at least as long as they were when the checkpoint was written.
+        boolean fits(String commandFile, String outputFile) throws IOException {
+            Path commands = Paths.get(commandFile);
+            Path output = Paths.get(outputFile);
+            return Files.exists(output) && Files.size(commands) >= commandOffset && Files.size(output) >= outputOffset;
+        }
+
+        // This method writes the checkpoint to a temporary file, forces it to the disk
+        // and moves it into place.
+        void write(String filename) throws IOException {
+            Path target = Paths.get(filename);
+            Path temp = Paths.get(filename + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(generation);
+                out.writeLong(commandOffset);
+                out.writeLong(outputOffset);
+                out.writeLong(currentDate == null ? NO_DATE : currentDate.toEpochDay());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
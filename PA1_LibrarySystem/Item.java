@@ -1,51 +1,137 @@
 package Library;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
 // This abstract class is used for all types of items in the library.
 public abstract class Item {
 
+    // These values mark an item that is not borrowed by anyone.
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    public static final int NO_BORROWER = -1;
+
+    // This formatter is used to show the borrow date as dd/MM/yyyy.
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
     // These fields are used to keep basic information about the item.
+    // The borrow date is an epoch day and the borrower is a handle from UserHandles,
+    // so nothing needs to be formatted or compared as text while items are lent.
     protected String id;
     protected String title;
-    protected String type;
-    protected boolean isBorrowed;
-    protected String borrowedDate;
-    protected String borrowedBy;
+    protected ItemType type;
+    // The flag is volatile because circulation desks on other threads read it.
+    protected volatile boolean isBorrowed;
+    protected int borrowedDay;
+    protected int borrowedBy;
+
+    // The UTF-8 bytes of the title, made the first time an encoder writes it.
+    private byte[] titleBytes;
+    // The users waiting for this item, made when the first hold is placed.
+    private HoldQueue holds;
+    // The catalog index that keeps the availability of this item, and the place of the item in it.
+    private CatalogIndex index;
+    private int indexPosition;
 
     // This constructor is used when a new item is created.
     public Item(String id, String title, String type) {
         this.id = id;
         this.title = title;
-        this.type = type;
+        this.type = ItemType.of(type);
         this.isBorrowed = false;
-        this.borrowedDate = "";
-        this.borrowedBy = "";
+        this.borrowedDay = NO_DATE;
+        this.borrowedBy = NO_BORROWER;
     }
 
     // These methods return information about the item.
     public String getId() { return id; }
     public String getTitle() { return title; }
-    public String getType() { return type; }
+    public String getType() { return type.label(); }
+    public ItemType getItemType() { return type; }
     public boolean isBorrowed() { return isBorrowed; }
+    public int getBorrowedDay() { return borrowedDay; }
+    public int getBorrowedBy() { return borrowedBy; }
+
+    // This method returns the title as UTF-8 bytes, which are kept for the next time.
+    byte[] titleBytes() {
+        byte[] bytes = titleBytes;
+        if (bytes == null) titleBytes = bytes = title.getBytes(StandardCharsets.UTF_8);
+        return bytes;
+    }
+
+    // These methods give the hold queue of the item; the first one makes it if there is none yet.
+    synchronized HoldQueue holds(int limit) {
+        if (holds == null) holds = new HoldQueue(limit);
+        return holds;
+    }
+
+    synchronized HoldQueue getHolds() {
+        return holds;
+    }
 
     // This method is used to change the borrow status.
-    public void setBorrowed(boolean borrowed) { isBorrowed = borrowed; }
+    public synchronized void setBorrowed(boolean borrowed) {
+        isBorrowed = borrowed;
+        availabilityChanged();
+    }
 
-    // This method is used to record who borrowed the item and when.
-    public void setBorrowInfo(String date, String borrower) {
-        this.borrowedDate = date;
+    // This method is used to record who borrowed the item and on which epoch day.
+    // The subclasses call it right after they set the borrow status, so the index learns about the loan here.
+    public synchronized void setBorrowInfo(int day, int borrower) {
+        this.borrowedDay = day;
         this.borrowedBy = borrower;
+        availabilityChanged();
     }
 
     // This method is used to clear the borrow information.
-    public void clearBorrowInfo() {
-        this.borrowedDate = "";
-        this.borrowedBy = "";
+    public synchronized void clearBorrowInfo() {
+        this.borrowedDay = NO_DATE;
+        this.borrowedBy = NO_BORROWER;
+        availabilityChanged();
     }
 
-    // These methods must be written by the subclasses.
-    public abstract boolean borrowItem(String userId, String borrowDate);
-    public abstract void returnItem(String returnDate);
+    // This method makes the index keep the availability of this item from now on.
+    // It holds the lock of the item, so no borrow or return can come between the first value and the updates.
+    synchronized void attachIndex(CatalogIndex index, int position) {
+        this.index = index;
+        this.indexPosition = position;
+        availabilityChanged();
+    }
+
+    // This method tells the index whether the item can be borrowed now. It is called with the lock of the item.
+    private void availabilityChanged() {
+        if (index != null) index.setAvailable(indexPosition, !isBorrowed);
+    }
+
+    // This method writes the first two lines of display(), which are the same for all items.
+    // The borrow date and borrower are only turned into text here.
+    protected void displayStatus(StringBuilder out) {
+        out.append("------ Item Information for ").append(id).append(" ------\n");
+        out.append("ID: ").append(id).append(" Name: ").append(title).append(" Status: ");
+        if (isBorrowed) {
+            out.append("Borrowed Borrowed Date: ");
+            if (borrowedDay != NO_DATE) DATE_FORMAT.formatTo(LocalDate.ofEpochDay(borrowedDay), out);
+            out.append(" Borrowed by: ");
+            if (borrowedBy != NO_BORROWER) out.append(UserHandles.idOf(borrowedBy));
+        } else {
+            out.append("Available");
+        }
+        out.append('\n');
+    }
+
+    // These methods must be written by the subclasses. They should be synchronized,
+    // so that two desks can never lend the same item at the same time.
+    public abstract boolean borrowItem(int borrower, int borrowDay);
+    public abstract void returnItem(int returnDay);
 
     // This method will be used to show item info in subclasses.
-    public abstract String display();
+    // It writes into the given builder, so the same builder can be reused for many items.
+    public abstract void display(StringBuilder out);
+
+    // This method returns the item info as a string.
+    public String display() {
+        StringBuilder out = new StringBuilder(160);
+        display(out);
+        return out.toString();
+    }
 }
@@ -0,0 +1,20 @@
+package Library;
+
+// This enum is used for the type of an item, which decides who is allowed to borrow it.
+public enum ItemType {
+    NORMAL, REFERENCE, RARE, LIMITED;
+
+    // This method reads the type text of the catalog file, ignoring case.
+    // Any text that is not a special type is a normal item.
+    public static ItemType of(String text) {
+        if (text.equalsIgnoreCase("reference")) return REFERENCE;
+        if (text.equalsIgnoreCase("rare")) return RARE;
+        if (text.equalsIgnoreCase("limited")) return LIMITED;
+        return NORMAL;
+    }
+
+    // This method gives the type the way it is written in the catalog file.
+    public String label() {
+        return name().toLowerCase();
+    }
+}
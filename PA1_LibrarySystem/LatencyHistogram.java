@@ -0,0 +1,83 @@
+package Library;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// This class is used to record how long commands take, in nanoseconds, without locks.
+// Values are counted in buckets the way HDR histograms do: every power of two is split into
+// 32 equal sub-buckets, so any recorded value is known to within about 3 percent, and the
+// whole range of a long fits in a fixed array. Several threads may record at the same time.
+public class LatencyHistogram {
+
+    // These values give the number of sub-buckets in every power of two.
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    // These fields are used to keep the bucket counts, the total count, the sum and the largest value.
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray totals = new AtomicLongArray(3);
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MAX = 2;
+
+    // This method adds one value. Negative values count as zero.
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(indexOf(value));
+        totals.incrementAndGet(COUNT);
+        totals.addAndGet(SUM, value);
+        long max = totals.get(MAX);
+        while (value > max && !totals.compareAndSet(MAX, max, value)) {
+            max = totals.get(MAX);
+        }
+    }
+
+    // These methods return the number of values, their mean and the largest one.
+    public long getCount() {
+        return totals.get(COUNT);
+    }
+
+    public double getMean() {
+        long count = totals.get(COUNT);
+        return count == 0 ? 0.0 : (double) totals.get(SUM) / count;
+    }
+
+    public long getMax() {
+        return totals.get(MAX);
+    }
+
+    // This method returns the value that the given percent of the values are at or below.
+    // The highest value of the bucket is returned, so the result never understates.
+    public long getPercentile(double percent) {
+        long count = totals.get(COUNT);
+        if (count == 0) return 0;
+        long wanted = Math.max(1, (long) Math.ceil(count * percent / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= wanted) return Math.min(highestValueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    // This method empties the histogram.
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        for (int i = 0; i < 3; i++) totals.set(i, 0);
+    }
+
+    // Values below 2 * SUB_COUNT have their own bucket; larger values share a bucket with
+    // the values that have the same top SUB_BITS + 1 bits.
+    static int indexOf(long value) {
+        if (value < 2 * SUB_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_COUNT + (int) (value >>> shift);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < 2 * SUB_COUNT) return index;
+        int shift = index / SUB_COUNT - 1;
+        long sub = index % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,149 @@
+package Library;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// This class is used to count what the library does while commands run: how many commands
+// of each kind came in, how each borrow, return and pay ended, how many loans were returned
+// automatically, and how long each kind of command took.
+// Counters are LongAdders and latencies go to LatencyHistograms, so desks and shards on
+// several threads can record at the same time without locks.
+public class LibraryMetrics implements LibraryMetricsMBean {
+
+    // These are the names of the command opcodes, used in the dump.
+    private static final String[] COMMAND_NAMES = {
+            null, "borrow", "return", "pay", "displayUsers", "displayItems"
+    };
+
+    // These fields are used to keep the counters and histograms, indexed by opcode or message.
+    private final LongAdder[] commands = new LongAdder[COMMAND_NAMES.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[COMMAND_NAMES.length];
+    private final LongAdder[] outcomes = new LongAdder[LogMessage.values().length];
+    private final LongAdder autoReturns = new LongAdder();
+
+    public LibraryMetrics() {
+        for (int i = 1; i < COMMAND_NAMES.length; i++) {
+            commands[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < outcomes.length; i++) outcomes[i] = new LongAdder();
+    }
+
+    // This method counts one command and the nanoseconds it took.
+    void recordCommand(byte opcode, long nanos) {
+        if (opcode <= 0 || opcode >= COMMAND_NAMES.length) return;
+        commands[opcode].increment();
+        latencies[opcode].record(nanos);
+    }
+
+    // This method counts the message a borrow, return or pay ended with.
+    void recordOutcome(LogMessage message) {
+        outcomes[message.ordinal()].increment();
+    }
+
+    // This method counts the loans that were returned automatically because they were overdue.
+    void recordAutoReturns(int count) {
+        if (count > 0) autoReturns.add(count);
+    }
+
+    // This method registers the metrics with the platform MBean server under the given name,
+    // for example "Library:type=Metrics".
+    public void register(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(objectName));
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics as " + objectName, e);
+        }
+    }
+
+    // This method returns the histogram of one kind of command.
+    public LatencyHistogram getLatency(byte opcode) {
+        return latencies[opcode];
+    }
+
+    @Override
+    public long getBorrowCount() { return commands[Command.BORROW].sum(); }
+    @Override
+    public long getReturnCount() { return commands[Command.RETURN].sum(); }
+    @Override
+    public long getPayCount() { return commands[Command.PAY].sum(); }
+    @Override
+    public long getDisplayCount() {
+        return commands[Command.DISPLAY_USERS].sum() + commands[Command.DISPLAY_ITEMS].sum();
+    }
+
+    @Override
+    public long getBorrowedCount() { return outcome(LogMessage.BORROWED); }
+    @Override
+    public long getRejectedForPenalty() { return outcome(LogMessage.PENALTY_DUE); }
+    @Override
+    public long getRejectedForLimit() { return outcome(LogMessage.LIMIT_REACHED); }
+    @Override
+    public long getRejectedNotAvailable() { return outcome(LogMessage.NOT_AVAILABLE); }
+    @Override
+    public long getRejectedGuestRestricted() {
+        return outcome(LogMessage.RARE_ITEM) + outcome(LogMessage.LIMITED_ITEM);
+    }
+    @Override
+    public long getAutoReturnCount() { return autoReturns.sum(); }
+
+    @Override
+    public double getBorrowP50Micros() { return latencies[Command.BORROW].getPercentile(50) / 1000.0; }
+    @Override
+    public double getBorrowP99Micros() { return latencies[Command.BORROW].getPercentile(99) / 1000.0; }
+    @Override
+    public double getReturnP50Micros() { return latencies[Command.RETURN].getPercentile(50) / 1000.0; }
+    @Override
+    public double getReturnP99Micros() { return latencies[Command.RETURN].getPercentile(99) / 1000.0; }
+    @Override
+    public double getMaxCommandMicros() {
+        long max = 0;
+        for (int i = 1; i < latencies.length; i++) max = Math.max(max, latencies[i].getMax());
+        return max / 1000.0;
+    }
+
+    // This method writes every counter and histogram as one "name value" pair per line.
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder(1024);
+        for (int i = 1; i < COMMAND_NAMES.length; i++) {
+            LatencyHistogram latency = latencies[i];
+            String name = "command." + COMMAND_NAMES[i];
+            out.append(name).append(".count ").append(commands[i].sum()).append('\n');
+            out.append(name).append(".meanMicros ").append(micros((long) latency.getMean())).append('\n');
+            out.append(name).append(".p50Micros ").append(micros(latency.getPercentile(50))).append('\n');
+            out.append(name).append(".p99Micros ").append(micros(latency.getPercentile(99))).append('\n');
+            out.append(name).append(".p999Micros ").append(micros(latency.getPercentile(99.9))).append('\n');
+            out.append(name).append(".maxMicros ").append(micros(latency.getMax())).append('\n');
+        }
+        for (LogMessage message : LogMessage.values()) {
+            out.append("outcome.").append(message.name().toLowerCase(Locale.ROOT)).append(' ')
+                    .append(outcome(message)).append('\n');
+        }
+        out.append("autoReturns ").append(autoReturns.sum()).append('\n');
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 1; i < COMMAND_NAMES.length; i++) {
+            commands[i].reset();
+            latencies[i].reset();
+        }
+        for (LongAdder outcome : outcomes) outcome.reset();
+        autoReturns.reset();
+    }
+
+    private long outcome(LogMessage message) {
+        return outcomes[message.ordinal()].sum();
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,30 @@
+package Library;
+
+// This interface lists what LibraryMetrics shows through JMX.
+// Latencies are given in microseconds.
+public interface LibraryMetricsMBean {
+
+    long getBorrowCount();
+    long getReturnCount();
+    long getPayCount();
+    long getDisplayCount();
+
+    long getBorrowedCount();
+    long getRejectedForPenalty();
+    long getRejectedForLimit();
+    long getRejectedNotAvailable();
+    long getRejectedGuestRestricted();
+    long getAutoReturnCount();
+
+    double getBorrowP50Micros();
+    double getBorrowP99Micros();
+    double getReturnP50Micros();
+    double getReturnP99Micros();
+    double getMaxCommandMicros();
+
+    // This operation returns the same text as the metrics dump file.
+    String dump();
+
+    // This operation sets all counters and histograms back to zero.
+    void reset();
+}
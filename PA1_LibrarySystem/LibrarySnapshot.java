@@ -0,0 +1,229 @@
+package Library;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// This class is used to save the whole state of a LibrarySystem into a small binary file
+// and to load it back, so a restart does not need to read the catalog files and replay
+// every old command again. Only the commands that came after the snapshot are replayed.
+public class LibrarySnapshot {
+
+    // These values are written at the start of the file to recognise it.
+    private static final int MAGIC = 0x4C494253;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // These bytes tell which subclass an item or a user record belongs to.
+    private static final byte BOOK = 'B';
+    private static final byte MAGAZINE = 'M';
+    private static final byte DVD = 'D';
+    private static final byte STUDENT = 'S';
+    private static final byte ACADEMIC = 'A';
+    private static final byte GUEST = 'G';
+
+    // This method writes the items, users, loans and penalties of the system to the file.
+    // The data goes to a temporary file first, so an old snapshot is never left half written.
+    public static void save(LibrarySystem system, String filename) throws IOException {
+        Path target = Paths.get(filename);
+        Path temp = Paths.get(filename + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(system.getItems().size());
+            for (Item item : system.getItems().values()) {
+                writeItem(out, item);
+            }
+
+            out.writeInt(system.getUsers().size());
+            for (UserBase user : system.getUsers().values()) {
+                writeUser(out, user);
+            }
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // This method replaces the catalog of the system with the one saved in the file.
+    public static void restore(LibrarySystem system, String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a library snapshot: " + filename);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+
+            NavigableMap<String, Item> items = new TreeMap<>();
+            int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                Item item = readItem(in);
+                items.put(item.getId(), item);
+            }
+
+            NavigableMap<String, UserBase> users = new TreeMap<>();
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                UserBase user = readUser(in, items);
+                users.put(user.getId(), user);
+            }
+            system.restoreCatalog(items, users);
+        }
+    }
+
+    // This method writes one item with its borrow state.
+    private static void writeItem(DataOutputStream out, Item item) throws IOException {
+        if (item instanceof BookItem) {
+            BookItem book = (BookItem) item;
+            out.writeByte(BOOK);
+            writeCommon(out, item);
+            writeString(out, book.getAuthor());
+            writeString(out, book.getGenre());
+        } else if (item instanceof MagazineItem) {
+            MagazineItem magazine = (MagazineItem) item;
+            out.writeByte(MAGAZINE);
+            writeCommon(out, item);
+            writeString(out, magazine.getPublisher());
+            writeString(out, magazine.getCategory());
+        } else if (item instanceof DVDItem) {
+            DVDItem dvd = (DVDItem) item;
+            out.writeByte(DVD);
+            writeCommon(out, item);
+            writeString(out, dvd.getDirector());
+            writeString(out, dvd.getCategory());
+            out.writeInt(dvd.getRuntime());
+        } else {
+            throw new IOException("Cannot write item of class " + item.getClass().getName());
+        }
+        out.writeBoolean(item.isBorrowed());
+        out.writeInt(item.getBorrowedDay());
+        writeString(out, item.getBorrowedBy() == Item.NO_BORROWER ? "" : UserHandles.idOf(item.getBorrowedBy()));
+    }
+
+    private static void writeCommon(DataOutputStream out, Item item) throws IOException {
+        writeString(out, item.getId());
+        writeString(out, item.getTitle());
+        writeString(out, item.getType());
+    }
+
+    // This method reads one item written by writeItem.
+    private static Item readItem(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        String id = readString(in);
+        String title = readString(in);
+        String type = readString(in);
+        Item item;
+        if (kind == BOOK) {
+            item = new BookItem(id, title, readString(in), readString(in), type);
+        } else if (kind == MAGAZINE) {
+            item = new MagazineItem(id, title, readString(in), readString(in), type);
+        } else if (kind == DVD) {
+            String director = readString(in);
+            String category = readString(in);
+            item = new DVDItem(id, title, director, category, in.readInt(), type);
+        } else {
+            throw new IOException("Unknown item record " + kind);
+        }
+        item.setBorrowed(in.readBoolean());
+        int borrowedDay = in.readInt();
+        String borrower = readString(in);
+        item.setBorrowInfo(borrowedDay, borrower.isEmpty() ? Item.NO_BORROWER : UserHandles.intern(borrower));
+        return item;
+    }
+
+    // This method writes one user with the penalty and the loans in borrow order.
+    private static void writeUser(DataOutputStream out, UserBase user) throws IOException {
+        if (user instanceof StudentUser) {
+            StudentUser student = (StudentUser) user;
+            out.writeByte(STUDENT);
+            writeCommon(out, user);
+            writeString(out, student.getDepartment());
+            writeString(out, student.getFaculty());
+            out.writeInt(student.getGrade());
+        } else if (user instanceof AcademicStaff) {
+            AcademicStaff staff = (AcademicStaff) user;
+            out.writeByte(ACADEMIC);
+            writeCommon(out, user);
+            writeString(out, staff.getDepartment());
+            writeString(out, staff.getFaculty());
+            writeString(out, staff.getTitle());
+        } else if (user instanceof Guest) {
+            out.writeByte(GUEST);
+            writeCommon(out, user);
+            writeString(out, ((Guest) user).getOccupation());
+        } else {
+            throw new IOException("Cannot write user of class " + user.getClass().getName());
+        }
+        out.writeDouble(user.getPenalty());
+        out.writeInt(user.borrowedItems.size());
+        for (Item item : user.borrowedItems) {
+            writeString(out, item.getId());
+            out.writeLong(user.borrowDates.get(item).toEpochDay());
+        }
+    }
+
+    private static void writeCommon(DataOutputStream out, UserBase user) throws IOException {
+        writeString(out, user.getId());
+        writeString(out, user.getName());
+        writeString(out, user.getPhoneNumber());
+    }
+
+    // This method reads one user written by writeUser and links its loans to the restored items.
+    private static UserBase readUser(DataInputStream in, NavigableMap<String, Item> items) throws IOException {
+        byte kind = in.readByte();
+        String id = readString(in);
+        String name = readString(in);
+        String phone = readString(in);
+        UserBase user;
+        if (kind == STUDENT) {
+            String department = readString(in);
+            String faculty = readString(in);
+            user = new StudentUser(id, name, phone, department, faculty, in.readInt());
+        } else if (kind == ACADEMIC) {
+            user = new AcademicStaff(id, name, phone, readString(in), readString(in), readString(in));
+        } else if (kind == GUEST) {
+            user = new Guest(id, name, phone, readString(in));
+        } else {
+            throw new IOException("Unknown user record " + kind);
+        }
+        user.addPenalty(in.readDouble());
+        int loans = in.readInt();
+        for (int i = 0; i < loans; i++) {
+            String itemId = readString(in);
+            Item item = items.get(itemId);
+            if (item == null) throw new IOException("Loan of user " + id + " refers to missing item " + itemId);
+            user.restoreLoan(item, LocalDate.ofEpochDay(in.readLong()));
+        }
+        return user;
+    }
+
+    // Strings are written as a byte count followed by their UTF-8 bytes.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -2,28 +2,133 @@ package Library;
 
 import java.io.*;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class LibrarySystem {
     // A map to store items using their ID
-    private Map<String, Item> items;
+    private NavigableMap<String, Item> items;
     // A map to store users using their ID
-    private Map<String, UserBase> users;
+    private NavigableMap<String, UserBase> users;
     // Name of the file that contains item data
     private String itemsFileName;
     // A list to keep the output log
     private List<String> transactionLog;
+    // The place where log lines are written, the list above unless streaming is used
+    private LogSink logSink;
+    // The journal that commands are written to before they run, if one is set
+    private TransactionJournal journal;
+    // The date of the last borrow command, used as the date of returns
+    private LocalDate currentDate;
+    // The attribute index over the items, built when it is first asked for
+    private CatalogIndex catalogIndex;
+    // The loan and penalty columns over the users, made when they are first asked for
+    private LoanColumns loanColumns;
+    // The title search index, which is filled as the items are loaded
+    private TitleSearchIndex titleIndex = new TitleSearchIndex();
+    // The part of the items written at the end of processCommands, or null for all of them
+    private DisplayOptions finalDisplay;
+    // The builder that items and users are rendered into before they are written
+    private final StringBuilder renderBuffer = new StringBuilder(256);
+    // The decoder and the reusable block of records that command lines are decoded into
+    private final CommandDecoder decoder = new CommandDecoder();
+    private final Command[] commandBlock = newCommandBlock();
+
+    // The most users that may wait for one item, or 0 when holds are turned off
+    private int maxHolds;
+    // The counters and latency histograms that commands are recorded in, or null when not measured
+    private LibraryMetrics metrics;
+
+    // This is the number of command lines that are decoded before they are run
+    private static final int COMMAND_BLOCK_SIZE = 1024;
+
+    // This sink drops its lines, for the batch methods that do not write to the log
+    private static final LogSink NO_LOG = new LogSink() {
+        @Override
+        public void write(String line) {
+        }
+
+        @Override
+        public void write(LogMessage message, UserBase user, Item item, int number) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
 
     public LibrarySystem() {
         items = new TreeMap<>();
         users = new TreeMap<>();
         transactionLog = new ArrayList<>();
+        logSink = new ListLogSink(transactionLog);
+    }
+
+    // This method makes processCommands write log lines to the given sink as it goes
+    // instead of keeping them for writeOutput, so memory does not grow with the command file
+    public void setLogSink(LogSink sink) {
+        this.logSink = sink;
+    }
+
+    // This method chooses which items are written at the end of processCommands
+    public void setFinalDisplay(DisplayOptions options) {
+        this.finalDisplay = options;
+    }
+
+    // This method makes processCommands write every command to the journal before running it
+    public void setJournal(TransactionJournal journal) {
+        this.journal = journal;
+    }
+
+    // This method makes the library count its commands, their results and their latency
+    public void setMetrics(LibraryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // This method turns on hold queues: a user who asks for a borrowed item waits in line for it,
+    // and the item goes to the first eligible user in line when it is returned. At most
+    // maxHolds users wait for one item; 0 turns holds off again. Holds are not shared safely
+    // between threads, so they are meant for processCommands and not for desks or shards
+    public void setMaxHolds(int maxHolds) {
+        if (maxHolds < 0) throw new IllegalArgumentException("Hold limit must not be negative: " + maxHolds);
+        this.maxHolds = maxHolds;
+    }
+
+    // This method gives the index for searching items by author, genre, director,
+    // publisher or category. It is built once and rebuilt after the items are reloaded
+    public CatalogIndex getCatalogIndex() {
+        if (catalogIndex == null) catalogIndex = new CatalogIndex(items.values());
+        return catalogIndex;
+    }
+
+    // This method gives the loan and penalty columns of the users. The users keep them up to date
+    // from then on; they are made again after the users are reloaded. Like the index they must
+    // not be made while commands are running
+    public LoanColumns getLoanColumns() {
+        if (loanColumns == null) loanColumns = new LoanColumns(users.values());
+        return loanColumns;
+    }
+
+    // This method gives the index for searching items by the words of their titles
+    public TitleSearchIndex getTitleIndex() {
+        return titleIndex;
+    }
+
+    // This method adds a loaded item to the catalog and to the title index
+    private void addItem(Item item) {
+        items.put(item.getId(), item);
+        titleIndex.add(item);
     }
 
     // This method loads items (books, magazines, DVDs) from a file
     public void loadItems(String filename) {
         this.itemsFileName = filename;
+        catalogIndex = null;
+        reopenItems();
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
             String line;
             while ((line = br.readLine()) != null) {
@@ -39,7 +144,7 @@ public class LibrarySystem {
                     String author = parts[3].trim();
                     String genre = parts[4].trim();
                     String type = parts[5].trim();
-                    items.put(id, new BookItem(id, title, author, genre, type));
+                    addItem(new BookItem(id, title, author, genre, type));
                 }
                 // Load Magazine
                 else if (firstToken.equalsIgnoreCase("M") && parts.length >= 6) {
@@ -48,7 +153,7 @@ public class LibrarySystem {
                     String publisher = parts[3].trim();
                     String category = parts[4].trim();
                     String type = parts[5].trim();
-                    items.put(id, new MagazineItem(id, title, publisher, category, type));
+                    addItem(new MagazineItem(id, title, publisher, category, type));
                 }
                 // Load DVD
                 else if (firstToken.equalsIgnoreCase("D") && parts.length >= 7) {
@@ -59,7 +164,7 @@ public class LibrarySystem {
                     String runtimeStr = parts[5].trim();
                     String type = parts[6].trim();
                     int runtime = Integer.parseInt(runtimeStr.replaceAll("[^0-9]", ""));
-                    items.put(id, new DVDItem(id, title, director, category, runtime, type));
+                    addItem(new DVDItem(id, title, director, category, runtime, type));
                 }
                 // Fallback for magazines with missing type
                 else if (parts.length >= 5) {
@@ -68,7 +173,7 @@ public class LibrarySystem {
                     String publisher = parts[2].trim();
                     String category = parts[3].trim();
                     String type = parts[4].trim();
-                    items.put(id, new MagazineItem(id, title, publisher, category, type));
+                    addItem(new MagazineItem(id, title, publisher, category, type));
                 }
             }
         } catch (IOException e) {
@@ -76,8 +181,77 @@ public class LibrarySystem {
         }
     }
 
+    // This method loads items like loadItems, but maps the file into memory and
+    // scans its bytes in place, which avoids the regex and split work on large catalogs
+    public void loadItemsMapped(String filename) {
+        this.itemsFileName = filename;
+        catalogIndex = null;
+        reopenItems();
+        try {
+            for (Item item : MappedCatalogLoader.readItems(filename)) {
+                addItem(item);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // This method loads users like loadUsers, but through the memory-mapped scanner
+    public void loadUsersMapped(String filename) {
+        reopenUsers();
+        loanColumns = null;
+        try {
+            for (UserBase user : MappedCatalogLoader.readUsers(filename)) {
+                users.put(user.id, user);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // This method loads items on all cores of the common fork-join pool. The file is parsed
+    // in chunks and the items are merged into one sorted index that is read-only afterwards
+    public void loadItemsParallel(String filename) {
+        this.itemsFileName = filename;
+        catalogIndex = null;
+        try {
+            items = ParallelCatalogLoader.loadItems(filename, items, ForkJoinPool.commonPool());
+            rebuildTitleIndex();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // This method loads users on all cores, in the same way as loadItemsParallel
+    public void loadUsersParallel(String filename) {
+        loanColumns = null;
+        try {
+            users = ParallelCatalogLoader.loadUsers(filename, users, ForkJoinPool.commonPool());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // This method indexes the titles of all items again, after the catalog was replaced at once
+    private void rebuildTitleIndex() {
+        titleIndex = new TitleSearchIndex();
+        for (Item item : items.values()) titleIndex.add(item);
+    }
+
+    // The parallel loaders leave a read-only index behind, so it is copied back
+    // into a TreeMap before the other loaders add to it
+    private void reopenItems() {
+        if (!(items instanceof TreeMap)) items = new TreeMap<>(items);
+    }
+
+    private void reopenUsers() {
+        if (!(users instanceof TreeMap)) users = new TreeMap<>(users);
+    }
+
     // This method loads user data from a file
     public void loadUsers(String filename) {
+        reopenUsers();
+        loanColumns = null;
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
             String line;
             while ((line = br.readLine()) != null) {
@@ -120,124 +294,408 @@ public class LibrarySystem {
         }
     }
 
-    // This method reads commands from a file and performs actions
+    // This method reads commands from a file and performs actions.
+    // Lines are decoded into a block of Command records first, and then the whole block
+    // is run by the dispatch loop, so memory stays the same for any file length
     public void processCommands(String filename) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        LocalDate currentDate = null;
+        Command[] block = commandBlock;
+        int pending = 0;
         try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
             String line;
             while ((line = br.readLine()) != null) {
                 line = line.trim();
                 if (line.isEmpty()) continue;
-                String[] parts = line.split(",", -1);
-                String command = parts[0].trim().toLowerCase();
-
-                switch (command) {
-                    // Borrow command
-                    case "borrow":
-                        if (parts.length >= 4) {
-                            String userId = parts[1].trim();
-                            String itemId = parts[2].trim();
-                            String borrowDateStr = parts[3].trim();
-                            LocalDate borrowDate = LocalDate.parse(borrowDateStr, formatter);
-                            currentDate = borrowDate;
-                            UserBase user = users.get(userId);
-                            Item item = items.get(itemId);
-                            if (user != null && item != null) {
-                                user.checkOverdueItems(borrowDate);
-                                if (user.penalty >= 6.0) {
-                                    transactionLog.add(user.getName() + " cannot borrow " + item.getTitle() +
-                                            ", you must first pay the penalty amount! " + (int) user.penalty + "$");
-                                } else {
-                                    // Check item restrictions for Guest users
-                                    if (user instanceof Guest && item.getType().equalsIgnoreCase("rare")) {
-                                        transactionLog.add(user.getName() + " cannot borrow rare item!");
-                                    } else if (user instanceof Guest && item.getType().equalsIgnoreCase("limited")) {
-                                        transactionLog.add(user.getName() + " cannot borrow limited item!");
-                                    } else {
-                                        // Try to borrow item
-                                        boolean result = user.borrowItem(item, borrowDate);
-                                        if (result) {
-                                            transactionLog.add(user.getName() + " successfully borrowed! " + item.getTitle());
-                                        } else {
-                                            // Handle borrowing failure reasons
-                                            if (item.isBorrowed()) {
-                                                transactionLog.add(user.getName() + " cannot borrow " + item.getTitle() + ", it is not available!");
-                                            } else if (user.borrowedItems.size() >= user.getMaxItems()) {
-                                                transactionLog.add(user.getName() + " cannot borrow " + item.getTitle() +
-                                                        ", since the borrow limit has been reached!");
-                                            } else if (item.getType().equalsIgnoreCase("reference")) {
-                                                transactionLog.add(user.getName() + " cannot borrow " + item.getTitle() +
-                                                        ", since the borrow limit has been reached!");
-                                            } else {
-                                                transactionLog.add(user.getName() + " failed to borrow " + item.getTitle());
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        break;
-
-                    // Return command
-                    case "return":
-                        if (parts.length >= 3) {
-                            String userId = parts[1].trim();
-                            String itemId = parts[2].trim();
-                            UserBase user = users.get(userId);
-                            Item item = items.get(itemId);
-                            if (user != null && item != null) {
-                                LocalDate returnDate = (currentDate != null) ? currentDate : LocalDate.now();
-                                boolean result = user.returnItem(item, returnDate);
-                                if (result) {
-                                    transactionLog.add(user.getName() + " successfully returned " + item.getTitle());
-                                } else {
-                                    transactionLog.add(user.getName() + " failed to return " + item.getTitle());
-                                }
-                            }
-                        }
-                        break;
-
-                    // Pay penalty command
-                    case "pay":
-                        if (parts.length >= 2) {
-                            String userId = parts[1].trim();
-                            UserBase user = users.get(userId);
-                            if (user != null) {
-                                user.clearPenalty();
-                                transactionLog.add(user.getName() + " has paid penalty");
-                            }
-                        }
-                        break;
-
-                    // Display users command
-                    case "displayusers":
-                        transactionLog.add("");
-                        transactionLog.add("");
-                        for (UserBase u : users.values()) {
-                            transactionLog.add(u.toString());
-                            transactionLog.add("");
-                        }
-                        transactionLog.add("");
-                        break;
-
-                    // Display items command
-                    case "displayitems":
-                        transactionLog.add("");
-                        transactionLog.add("");
-                        printFormattedItems();
-                        break;
-
-                    // If command is not known, do nothing
-                    default:
-                        break;
+                // The command is written to the journal before it changes anything
+                if (journal != null) journal.append(line);
+                if (!decoder.decode(line, block[pending])) continue;
+                if (++pending == block.length) {
+                    pending = 0;
+                    runBlock(block, block.length);
                 }
             }
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            // Commands decoded before a failure still run, as they did when lines ran one by one
+            runDecoded(block, pending);
+        }
+        writeFinalState();
+    }
+
+    // This method runs the complete lines of the command file that start at the given byte offset
+    // and returns the offset after the last one, so the next call can go on from there.
+    // Unlike processCommands it does not write the final state of the items
+    long processCommandsFrom(String filename, long offset) throws IOException {
+        Command[] block = commandBlock;
+        int pending = 0;
+        try (OffsetLineReader reader = new OffsetLineReader(filename, offset)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (journal != null) journal.append(line);
+                if (!decoder.decode(line, block[pending])) continue;
+                if (++pending == block.length) {
+                    pending = 0;
+                    runBlock(block, block.length);
+                }
+            }
+            int last = pending;
+            pending = 0;
+            runBlock(block, last);
+            return reader.offset();
+        } finally {
+            // Commands decoded before a failure still run, as in processCommands
+            runDecoded(block, pending);
         }
+    }
+
+    // This method forces the journal before a block runs, so no command changes anything
+    // or writes its output before its record is on the disk, whatever the batch size is
+    private void runBlock(Command[] block, int count) throws IOException {
+        if (journal != null) journal.commit();
+        dispatch(block, count);
+    }
+
+    // This method runs the commands decoded before a failure. If the journal cannot be
+    // forced either, they are not run, because they could not be replayed after a crash
+    private void runDecoded(Command[] block, int count) {
+        try {
+            runBlock(block, count);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // This method writes the final state of the items and pushes the log to its sink
+    void writeFinalState() {
         // Print final state of all items
-        printFormattedItems();
+        printFormattedItems(finalDisplay);
+        logSink.flush();
+    }
+
+    // These methods give the date that return commands use, which is the date of the last borrow.
+    // Incremental runs keep it between runs
+    LocalDate getCurrentDate() {
+        return currentDate;
+    }
+
+    void setCurrentDate(LocalDate currentDate) {
+        this.currentDate = currentDate;
+    }
+
+    // This method replays the commands kept in a journal, for example after a crash.
+    // The commands are not written to the journal again. It returns how many were replayed
+    public int recoverFromJournal(String journalFile) {
+        int count = 0;
+        try {
+            for (String line : TransactionJournal.read(journalFile)) {
+                executeCommand(line);
+                count++;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        logSink.flush();
+        return count;
+    }
+
+    // This method performs a single command line
+    private void executeCommand(String line) {
+        if (decoder.decode(line, commandBlock[0])) dispatch(commandBlock, 1);
+    }
+
+    // This method runs the first count records of the block in order
+    private void dispatch(Command[] block, int count) {
+        LibraryMetrics metrics = this.metrics;
+        for (int i = 0; i < count; i++) {
+            Command command = block[i];
+            long start = metrics != null ? System.nanoTime() : 0L;
+            switch (command.opcode) {
+                // Borrow command
+                case Command.BORROW: {
+                    currentDate = command.date;
+                    UserBase user = users.get(command.userId);
+                    Item item = items.get(command.itemId);
+                    if (user != null && item != null) {
+                        borrow(user, item, command.date, logSink);
+                    }
+                    break;
+                }
+
+                // Return command
+                case Command.RETURN: {
+                    UserBase user = users.get(command.userId);
+                    Item item = items.get(command.itemId);
+                    if (user != null && item != null) {
+                        LocalDate returnDate = (currentDate != null) ? currentDate : LocalDate.now();
+                        returnItem(user, item, returnDate, logSink);
+                    }
+                    break;
+                }
+
+                // Pay penalty command
+                case Command.PAY: {
+                    UserBase user = users.get(command.userId);
+                    if (user != null) {
+                        pay(user, logSink);
+                    }
+                    break;
+                }
+
+                // Display users command
+                case Command.DISPLAY_USERS:
+                    logSink.write("");
+                    logSink.write("");
+                    printFormattedUsers(command.display);
+                    logSink.write("");
+                    break;
+
+                // Display items command
+                case Command.DISPLAY_ITEMS:
+                    logSink.write("");
+                    logSink.write("");
+                    printFormattedItems(command.display);
+                    break;
+
+                default:
+                    break;
+            }
+            if (metrics != null) metrics.recordCommand(command.opcode, System.nanoTime() - start);
+        }
+    }
+
+    // This method tries to lend the item to the user and writes the result to the sink
+    void borrow(UserBase user, Item item, LocalDate borrowDate, LogSink out) {
+        LoanPolicy policy = LoanPolicy.active();
+        autoReturn(user, borrowDate, out);
+        if (user.penalty >= policy.penaltyThreshold()) {
+            report(out, LogMessage.PENALTY_DUE, user, item, (int) user.penalty);
+        } else {
+            // Check the item types the policy refuses for this kind of user
+            LogMessage refusal = policy.earlyRefusal(user.getUserClass(), item.getItemType());
+            if (refusal != null) {
+                report(out, refusal, user, item, 0);
+            } else if (!serveHoldsFirst(user, item, borrowDate, out)) {
+                // Try to borrow item, unless it reached the user through their own hold
+                boolean result = user.borrowItem(item, borrowDate);
+                if (result) {
+                    takeHold(user, item);
+                    report(out, LogMessage.BORROWED, user, item, 0);
+                } else {
+                    // Handle borrowing failure reasons
+                    if (item.isBorrowed()) {
+                        report(out, LogMessage.NOT_AVAILABLE, user, item, 0);
+                        if (maxHolds > 0) placeHold(user, item, out);
+                    } else if (user.borrowedItems.size() >= user.getMaxItems()) {
+                        report(out, LogMessage.LIMIT_REACHED, user, item, 0);
+                    } else if (policy.lateRefusal(user.getUserClass(), item.getItemType()) != null) {
+                        report(out, policy.lateRefusal(user.getUserClass(), item.getItemType()), user, item, 0);
+                    } else if (item.getItemType() == ItemType.REFERENCE) {
+                        report(out, LogMessage.REFERENCE_ITEM, user, item, 0);
+                    } else {
+                        report(out, LogMessage.BORROW_FAILED, user, item, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    // This method takes the item back from the user and writes the result to the sink
+    void returnItem(UserBase user, Item item, LocalDate returnDate, LogSink out) {
+        boolean result = user.returnItem(item, returnDate);
+        if (result) {
+            report(out, LogMessage.RETURNED, user, item, 0);
+            if (maxHolds > 0) serveHolds(item, returnDate, out);
+        } else {
+            report(out, LogMessage.RETURN_FAILED, user, item, 0);
+        }
+    }
+
+    // This method clears the penalty of the user and writes it to the sink
+    void pay(UserBase user, LogSink out) {
+        user.clearPenalty();
+        report(out, LogMessage.PAID, user, null, 0);
+    }
+
+    // This method lends several items to one user on one date, as a self-checkout kiosk does,
+    // and returns a LoanStatus code for every item. The overdue loans of the user and the
+    // penalty are checked once for the whole batch instead of once per item; they cannot
+    // change while the batch runs, since borrowing neither returns loans nor adds penalty.
+    // Nothing is written to the log sink and no holds are placed, but items that users wait
+    // for still go to those users first
+    public int[] borrowAll(String userId, String[] itemIds, LocalDate date) {
+        int[] status = new int[itemIds.length];
+        UserBase user = users.get(userId);
+        if (user == null) {
+            Arrays.fill(status, LoanStatus.UNKNOWN_USER);
+            return status;
+        }
+        LoanPolicy policy = LoanPolicy.active();
+        LoanPolicy.UserClass userClass = user.getUserClass();
+        autoReturn(user, date, NO_LOG);
+        boolean blocked = user.penalty >= policy.penaltyThreshold();
+        int maxItems = policy.maxItems(userClass);
+
+        for (int i = 0; i < itemIds.length; i++) {
+            Item item = items.get(itemIds[i]);
+            if (item == null) {
+                status[i] = LoanStatus.UNKNOWN_ITEM;
+            } else if (blocked) {
+                status[i] = LoanStatus.PENALTY_DUE;
+            } else if (policy.earlyRefusal(userClass, item.getItemType()) != null) {
+                status[i] = LoanStatus.RESTRICTED;
+            } else if (serveHoldsFirst(user, item, date, NO_LOG)) {
+                status[i] = LoanStatus.OK;
+            } else if (policy.allows(userClass, item.getItemType())
+                    && user.borrowedItems.size() < maxItems && user.lend(item, date)) {
+                takeHold(user, item);
+                status[i] = LoanStatus.OK;
+            } else if (item.isBorrowed()) {
+                // The reasons are checked in the same order as in borrow
+                status[i] = LoanStatus.NOT_AVAILABLE;
+            } else if (user.borrowedItems.size() >= maxItems) {
+                status[i] = LoanStatus.LIMIT_REACHED;
+            } else if (policy.lateRefusal(userClass, item.getItemType()) != null) {
+                status[i] = LoanStatus.RESTRICTED;
+            } else {
+                status[i] = LoanStatus.FAILED;
+            }
+        }
+        return status;
+    }
+
+    // This method takes several items back from one user on one date and returns a LoanStatus
+    // code for every item. Returned items are handed to their holders when holds are on.
+    // Like borrowAll it writes nothing to the log; the hold lines are dropped
+    public int[] returnAll(String userId, String[] itemIds, LocalDate date) {
+        return returnAll(userId, itemIds, date, NO_LOG);
+    }
+
+    // This method is returnAll that writes the lines of the holds it serves to holdLog,
+    // for callers that log hold handoffs as processCommands does
+    public int[] returnAll(String userId, String[] itemIds, LocalDate date, LogSink holdLog) {
+        int[] status = new int[itemIds.length];
+        UserBase user = users.get(userId);
+        if (user == null) {
+            Arrays.fill(status, LoanStatus.UNKNOWN_USER);
+            return status;
+        }
+        for (int i = 0; i < itemIds.length; i++) {
+            Item item = items.get(itemIds[i]);
+            if (item == null) {
+                status[i] = LoanStatus.UNKNOWN_ITEM;
+            } else if (user.returnItem(item, date)) {
+                status[i] = LoanStatus.OK;
+                if (maxHolds > 0) serveHolds(item, date, holdLog);
+            } else {
+                status[i] = LoanStatus.NOT_BORROWED;
+            }
+        }
+        return status;
+    }
+
+    // This method puts the user at the end of the hold queue of the item. A user who has the item
+    // on loan gets no hold, and a user who already waits for it is not queued a second time,
+    // so repeated borrows of a lent item cannot make the item come back to the same user
+    private void placeHold(UserBase user, Item item, LogSink out) {
+        if (item.getBorrowedBy() == user.handle) return;
+        HoldQueue existing = item.getHolds();
+        if (existing != null && existing.contains(user.handle)) {
+            report(out, LogMessage.HOLD_ALREADY_PLACED, user, item, 0);
+            return;
+        }
+        boolean placed = item.holds(maxHolds).offer(user.handle);
+        report(out, placed ? LogMessage.HOLD_PLACED : LogMessage.HOLD_QUEUE_FULL, user, item, 0);
+    }
+
+    // This method lends a returned item to the first user in its hold queue who may borrow it.
+    // Users who have too much penalty or too many loans by now lose their hold, so every hold
+    // is looked at once and a return costs O(1) amortized however long the queue is.
+    // A holder may auto-return overdue loans first; those items are served in turn from a
+    // list of pending items rather than by recursion, so a chain of holders cannot go deep
+    private void serveHolds(Item item, LocalDate date, LogSink out) {
+        if (item.getHolds() == null) return;
+        ArrayDeque<Item> pending = new ArrayDeque<>();
+        pending.add(item);
+        while (!pending.isEmpty()) {
+            Item returned = pending.poll();
+            HoldQueue holds = returned.getHolds();
+            if (holds == null) continue;
+            while (!returned.isBorrowed()) {
+                int handle = holds.poll();
+                if (handle == Item.NO_BORROWER) break;
+                UserBase holder = users.get(UserHandles.idOf(handle));
+                if (holder == null) continue;
+                List<Item> autoReturned = holder.returnOverdueItems(date);
+                if (metrics != null) metrics.recordAutoReturns(autoReturned.size());
+                pending.addAll(autoReturned);
+                if (holder.borrowItem(returned, date)) {
+                    report(out, LogMessage.HOLD_FILLED, holder, returned, 0);
+                } else {
+                    report(out, LogMessage.HOLD_DROPPED, holder, returned, 0);
+                }
+            }
+        }
+    }
+
+    // This method auto-returns the overdue loans of the user. When holds are on, the items go
+    // to the users waiting for them, just as after a return command
+    private void autoReturn(UserBase user, LocalDate date, LogSink out) {
+        List<Item> returned = user.returnOverdueItems(date);
+        if (metrics != null) metrics.recordAutoReturns(returned.size());
+        if (maxHolds > 0) {
+            for (Item item : returned) serveHolds(item, date, out);
+        }
+    }
+
+    // This method keeps an item on the shelf for the users waiting for it. When the item is free
+    // but its hold queue is not empty and the user is not first in line, the item is served to the
+    // queue before the user may borrow it. It returns true when the queue gave it to this user.
+    private boolean serveHoldsFirst(UserBase user, Item item, LocalDate date, LogSink out) {
+        if (maxHolds == 0 || item.isBorrowed()) return false;
+        HoldQueue holds = item.getHolds();
+        if (holds == null || holds.size() == 0 || holds.peek() == user.handle) return false;
+        serveHolds(item, date, out);
+        return item.getBorrowedBy() == user.handle;
+    }
+
+    // This method removes the hold of a user who was first in line and has just borrowed the item
+    private void takeHold(UserBase user, Item item) {
+        if (maxHolds == 0) return;
+        HoldQueue holds = item.getHolds();
+        if (holds != null && holds.peek() == user.handle) holds.poll();
+    }
+
+    // This method writes the message of a borrow, return or pay and counts it in the metrics
+    private void report(LogSink out, LogMessage message, UserBase user, Item item, int number) {
+        if (metrics != null) metrics.recordOutcome(message);
+        out.write(message, user, item, number);
+    }
+
+    // This method creates the records that the command lines are decoded into
+    private static Command[] newCommandBlock() {
+        Command[] block = new Command[COMMAND_BLOCK_SIZE];
+        for (int i = 0; i < block.length; i++) block[i] = new Command();
+        return block;
+    }
+
+    // These methods give the snapshot code access to the catalog
+    NavigableMap<String, Item> getItems() {
+        return items;
+    }
+
+    NavigableMap<String, UserBase> getUsers() {
+        return users;
+    }
+
+    // This method replaces the catalog with one restored from a snapshot
+    void restoreCatalog(NavigableMap<String, Item> items, NavigableMap<String, UserBase> users) {
+        this.items = items;
+        this.users = users;
+        this.catalogIndex = null;
+        this.loanColumns = null;
+        rebuildTitleIndex();
     }
 
     // This method writes the output log to a file
@@ -251,11 +709,44 @@ public class LibrarySystem {
         }
     }
 
-    // This method adds item display info to the log
-    private void printFormattedItems() {
-        for (Item item : items.values()) {
-            transactionLog.add(item.display());
-            transactionLog.add("");
+    // This method adds item display info to the log. Only the page chosen by the options
+    // is written, and every item is rendered into the same reused builder
+    private void printFormattedItems(DisplayOptions options) {
+        NavigableMap<String, Item> shown = options == null ? items : options.select(items);
+        long skip = options == null ? 0 : options.firstIndex();
+        long left = options == null ? Long.MAX_VALUE : options.pageSize();
+        for (Item item : shown.values()) {
+            if (left == 0) break;
+            if (options != null && options.isBorrowedOnly() && !item.isBorrowed()) continue;
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            renderBuffer.setLength(0);
+            item.display(renderBuffer);
+            logSink.write(renderBuffer);
+            logSink.write("");
+            left--;
+        }
+    }
+
+    // This method adds user info to the log in the same way; borrowedOnly keeps users that hold items
+    private void printFormattedUsers(DisplayOptions options) {
+        NavigableMap<String, UserBase> shown = options == null ? users : options.select(users);
+        long skip = options == null ? 0 : options.firstIndex();
+        long left = options == null ? Long.MAX_VALUE : options.pageSize();
+        for (UserBase user : shown.values()) {
+            if (left == 0) break;
+            if (options != null && options.isBorrowedOnly() && user.borrowedItems.isEmpty()) continue;
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            renderBuffer.setLength(0);
+            user.display(renderBuffer);
+            logSink.write(renderBuffer);
+            logSink.write("");
+            left--;
         }
     }
 }
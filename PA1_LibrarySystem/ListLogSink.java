@@ -0,0 +1,31 @@
+package Library;
+
+import java.util.List;
+
+// This class is used to keep the log lines in memory until they are written at the end.
+public class ListLogSink implements LogSink {
+
+    // This list is used to store the lines in the order they were written.
+    private final List<String> lines;
+
+    // This constructor is used to collect lines into the given list.
+    public ListLogSink(List<String> lines) {
+        this.lines = lines;
+    }
+
+    // This method adds the line to the list.
+    @Override
+    public void write(String line) {
+        lines.add(line);
+    }
+
+    // Nothing is buffered outside the list, so there is nothing to flush.
+    @Override
+    public void flush() {
+    }
+
+    // The list is owned by the caller, so it is not cleared here.
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,196 @@
+package Library;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// This class is used to answer questions about loans and penalties over the whole library,
+// such as which users are blocked by their penalty or how many loans are overdue.
+// It keeps the loans and penalties in primitive arrays, one per column: a row per user with
+// the penalty and faculty, and a row per loan with the user, the borrow day and the due day.
+// The users write every loan, return, auto-return and penalty into the columns as it happens,
+// so the queries always see the library as it is now. A returned loan's row is filled with the
+// last row, so the loan rows stay packed. The queries are tight loops over these arrays; large
+// ones are split over a parallel stream. Only the columns made last for a library are kept up to date.
+public class LoanColumns {
+
+    // Below this many rows a query runs on the calling thread, since splitting would cost more.
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+    // Guests have no faculty and get this code.
+    private static final int NO_FACULTY = -1;
+
+    // These arrays keep one row per user.
+    private final String[] userIds;
+    private final double[] penalties;
+    private final int[] faculties;
+    private final String[] facultyNames;
+
+    // These arrays keep one row per loan; only the first loanCount rows are used.
+    private int loanCount;
+    private int[] loanUsers;
+    private int[] borrowDays;
+    private int[] dueDays;
+    // The loan of every row, to find its item and to tell it its new row when it is moved.
+    private UserBase.Loan[] loans;
+
+    // This constructor makes a row for every user and copies the loans they have now.
+    // It must not run while commands are changing the library.
+    LoanColumns(Collection<UserBase> users) {
+        int userCount = users.size();
+        int capacity = 16;
+        for (UserBase user : users) capacity += user.borrowedItems.size();
+        this.userIds = new String[userCount];
+        this.penalties = new double[userCount];
+        this.faculties = new int[userCount];
+        this.loanUsers = new int[capacity];
+        this.borrowDays = new int[capacity];
+        this.dueDays = new int[capacity];
+        this.loans = new UserBase.Loan[capacity];
+
+        Map<String, Integer> facultyCodes = new LinkedHashMap<>();
+        int row = 0;
+        for (UserBase user : users) {
+            userIds[row] = user.getId();
+            penalties[row] = user.getPenalty();
+            String faculty = facultyOf(user);
+            if (faculty == null) {
+                faculties[row] = NO_FACULTY;
+            } else {
+                Integer code = facultyCodes.get(faculty);
+                if (code == null) {
+                    code = facultyCodes.size();
+                    facultyCodes.put(faculty, code);
+                }
+                faculties[row] = code;
+            }
+            user.attachColumns(this, row);
+            row++;
+        }
+        this.facultyNames = facultyCodes.keySet().toArray(new String[0]);
+    }
+
+    // These methods are called by the users when a loan is made or ends and when the penalty changes.
+    synchronized void addLoan(int user, UserBase.Loan loan, int borrowDay) {
+        if (loanCount == loans.length) {
+            int capacity = loans.length * 2;
+            loanUsers = Arrays.copyOf(loanUsers, capacity);
+            borrowDays = Arrays.copyOf(borrowDays, capacity);
+            dueDays = Arrays.copyOf(dueDays, capacity);
+            loans = Arrays.copyOf(loans, capacity);
+        }
+        int row = loanCount++;
+        loanUsers[row] = user;
+        borrowDays[row] = borrowDay;
+        dueDays[row] = (int) loan.dueDay;
+        loans[row] = loan;
+        loan.row = row;
+    }
+
+    synchronized void removeLoan(UserBase.Loan loan) {
+        int row = loan.row;
+        if (row < 0 || row >= loanCount || loans[row] != loan) return;
+        int last = --loanCount;
+        loanUsers[row] = loanUsers[last];
+        borrowDays[row] = borrowDays[last];
+        dueDays[row] = dueDays[last];
+        loans[row] = loans[last];
+        loans[row].row = row;
+        loans[last] = null;
+        loan.row = -1;
+    }
+
+    synchronized void setPenalty(int user, double penalty) {
+        penalties[user] = penalty;
+    }
+
+    // These methods return the number of rows.
+    public int userCount() {
+        return userIds.length;
+    }
+
+    public synchronized int loanCount() {
+        return loanCount;
+    }
+
+    // This method returns the IDs of the users whose penalty is at least the threshold, in ID order.
+    public synchronized List<String> usersWithPenaltyAtLeast(double threshold) {
+        int[] rows = range(userIds.length).filter(i -> penalties[i] >= threshold).toArray();
+        List<String> result = new ArrayList<>(rows.length);
+        for (int row : rows) result.add(userIds[row]);
+        return result;
+    }
+
+    // This method returns the sum of all penalties.
+    public synchronized double totalPenalty() {
+        return range(penalties.length).mapToDouble(i -> penalties[i]).sum();
+    }
+
+    // This method counts the loans whose due day is at least the given number of days before today.
+    // A loan expires on its due day, as in UserBase.checkOverdueItems, so 0 counts every expired loan.
+    public synchronized long countOverdue(LocalDate today, int daysPastDue) {
+        int limit = (int) today.toEpochDay() - daysPastDue;
+        int[] due = dueDays;
+        return range(loanCount).filter(i -> due[i] <= limit).count();
+    }
+
+    // This method counts the loans that were made on or after the given day.
+    public synchronized long countBorrowedSince(LocalDate day) {
+        int from = (int) day.toEpochDay();
+        int[] borrowed = borrowDays;
+        return range(loanCount).filter(i -> borrowed[i] >= from).count();
+    }
+
+    // This method returns the IDs of the items whose loans have expired, sorted by ID.
+    // These are the loans that UserBase.checkOverdueItems would auto-return today.
+    public synchronized List<String> overdueItems(LocalDate today) {
+        int day = (int) today.toEpochDay();
+        int[] due = dueDays;
+        int[] rows = range(loanCount).filter(i -> due[i] <= day).toArray();
+        List<String> result = new ArrayList<>(rows.length);
+        for (int row : rows) result.add(loans[row].item.getId());
+        result.sort(null);
+        return result;
+    }
+
+    // This method returns the total penalty of the students and staff of every faculty.
+    // Every thread adds into its own array, one slot per faculty, and the arrays are added at the end.
+    public synchronized Map<String, Double> penaltyByFaculty() {
+        int groups = facultyNames.length;
+        double[] totals = range(userIds.length).collect(
+                () -> new double[groups],
+                (sums, i) -> {
+                    if (faculties[i] != NO_FACULTY) sums[faculties[i]] += penalties[i];
+                },
+                (left, right) -> {
+                    for (int g = 0; g < groups; g++) left[g] += right[g];
+                });
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int g = 0; g < groups; g++) result.put(facultyNames[g], totals[g]);
+        return result;
+    }
+
+    // This method returns how many loans every user has, indexed like the user rows.
+    public synchronized int[] loansPerUser() {
+        int[] counts = new int[userIds.length];
+        for (int row = 0; row < loanCount; row++) counts[loanUsers[row]]++;
+        return counts;
+    }
+
+    // This method gives a parallel stream over the rows when there are enough of them.
+    private static IntStream range(int rows) {
+        IntStream stream = IntStream.range(0, rows);
+        return rows >= PARALLEL_THRESHOLD ? stream.parallel() : stream;
+    }
+
+    // Students and academic staff belong to a faculty; guests do not.
+    private static String facultyOf(UserBase user) {
+        if (user instanceof StudentUser) return ((StudentUser) user).getFaculty();
+        if (user instanceof AcademicStaff) return ((AcademicStaff) user).getFaculty();
+        return null;
+    }
+}
@@ -0,0 +1,177 @@
+package Library;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+// This class is used to keep the loan rules of the library: how many items each kind of user
+// may hold, how many days a loan lasts, the overdue penalty, the penalty that blocks borrowing,
+// and which item types each kind of user is not allowed to borrow.
+// The rules are read from a properties file and compiled into flat tables indexed by
+// (user class, item type), so a borrow check is one array lookup.
+// Keys that are missing from the file keep the default rules of the assignment.
+public final class LoanPolicy {
+
+    // These are the kinds of users the rules are given for.
+    public enum UserClass { STUDENT, ACADEMIC, GUEST }
+
+    private static final int TYPES = ItemType.values().length;
+
+    // Rare and limited items have their own refusal message, which is shown before the item is tried.
+    // Other refused types are tried like any item and only reported when nothing else went wrong.
+    private static final LogMessage[] EARLY_MESSAGES = new LogMessage[TYPES];
+    private static final LogMessage[] LATE_MESSAGES = new LogMessage[TYPES];
+
+    static {
+        EARLY_MESSAGES[ItemType.RARE.ordinal()] = LogMessage.RARE_ITEM;
+        EARLY_MESSAGES[ItemType.LIMITED.ordinal()] = LogMessage.LIMITED_ITEM;
+        LATE_MESSAGES[ItemType.NORMAL.ordinal()] = LogMessage.BORROW_FAILED;
+        LATE_MESSAGES[ItemType.REFERENCE.ordinal()] = LogMessage.REFERENCE_ITEM;
+    }
+
+    // This is the policy every user reads. It is replaced as a whole, never changed in place.
+    private static volatile LoanPolicy active = defaults();
+
+    // These fields are used to keep the compiled rules.
+    private final double penaltyThreshold;
+    private final double overduePenalty;
+    private final int[] maxItems;
+    private final int[] overdueDays;
+    private final boolean[] allowed;
+    private final LogMessage[] earlyRefusals;
+    private final LogMessage[] lateRefusals;
+
+    // This constructor compiles the rules read from the properties.
+    private LoanPolicy(Properties rules) {
+        this.penaltyThreshold = readDouble(rules, "penalty.threshold");
+        this.overduePenalty = readDouble(rules, "penalty.overdue");
+        int classes = UserClass.values().length;
+        this.maxItems = new int[classes];
+        this.overdueDays = new int[classes];
+        this.allowed = new boolean[classes * TYPES];
+        this.earlyRefusals = new LogMessage[classes * TYPES];
+        this.lateRefusals = new LogMessage[classes * TYPES];
+
+        for (UserClass userClass : UserClass.values()) {
+            String prefix = userClass.name().toLowerCase(Locale.ROOT) + ".";
+            maxItems[userClass.ordinal()] = readInt(rules, prefix + "maxItems");
+            overdueDays[userClass.ordinal()] = readInt(rules, prefix + "overdueDays");
+
+            boolean[] refused = new boolean[TYPES];
+            for (String type : rules.getProperty(prefix + "refuse", "").split(",")) {
+                if (!type.trim().isEmpty()) refused[readType(type.trim(), prefix + "refuse").ordinal()] = true;
+            }
+            for (int type = 0; type < TYPES; type++) {
+                int cell = userClass.ordinal() * TYPES + type;
+                allowed[cell] = !refused[type];
+                if (refused[type]) {
+                    earlyRefusals[cell] = EARLY_MESSAGES[type];
+                    lateRefusals[cell] = LATE_MESSAGES[type];
+                }
+            }
+        }
+    }
+
+    // This method returns the policy with the default rules of the assignment.
+    public static LoanPolicy defaults() {
+        return new LoanPolicy(defaultRules());
+    }
+
+    // This method reads a policy from a properties file. Missing keys keep their default value.
+    public static LoanPolicy load(String filename) throws IOException {
+        Properties rules = new Properties(defaultRules());
+        try (InputStream in = new FileInputStream(filename)) {
+            rules.load(in);
+        }
+        return new LoanPolicy(rules);
+    }
+
+    // These methods give and replace the policy that all users follow.
+    public static LoanPolicy active() {
+        return active;
+    }
+
+    public static void setActive(LoanPolicy policy) {
+        if (policy == null) throw new IllegalArgumentException("Policy must not be null");
+        active = policy;
+    }
+
+    // These methods return the rules of one kind of user.
+    public int maxItems(UserClass userClass) {
+        return maxItems[userClass.ordinal()];
+    }
+
+    public int overdueDays(UserClass userClass) {
+        return overdueDays[userClass.ordinal()];
+    }
+
+    public double penaltyThreshold() {
+        return penaltyThreshold;
+    }
+
+    public double overduePenalty() {
+        return overduePenalty;
+    }
+
+    // This method checks if a kind of user may borrow items of a type.
+    public boolean allows(UserClass userClass, ItemType type) {
+        return allowed[userClass.ordinal() * TYPES + type.ordinal()];
+    }
+
+    // This method returns the message for a refusal that is reported before the item is tried, or null.
+    LogMessage earlyRefusal(UserClass userClass, ItemType type) {
+        return earlyRefusals[userClass.ordinal() * TYPES + type.ordinal()];
+    }
+
+    // This method returns the message for a refusal that is reported after the other checks, or null.
+    LogMessage lateRefusal(UserClass userClass, ItemType type) {
+        return lateRefusals[userClass.ordinal() * TYPES + type.ordinal()];
+    }
+
+    // These are the rules given in the assignment.
+    private static Properties defaultRules() {
+        Properties rules = new Properties();
+        rules.setProperty("penalty.threshold", "6.0");
+        rules.setProperty("penalty.overdue", "2.0");
+        rules.setProperty("student.maxItems", "5");
+        rules.setProperty("student.overdueDays", "30");
+        rules.setProperty("student.refuse", "reference");
+        rules.setProperty("academic.maxItems", "3");
+        rules.setProperty("academic.overdueDays", "15");
+        rules.setProperty("academic.refuse", "");
+        rules.setProperty("guest.maxItems", "1");
+        rules.setProperty("guest.overdueDays", "7");
+        rules.setProperty("guest.refuse", "rare,limited");
+        return rules;
+    }
+
+    private static int readInt(Properties rules, String key) {
+        String value = rules.getProperty(key).trim();
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 0) throw new IllegalArgumentException("Policy value " + key + " must not be negative: " + value);
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Policy value " + key + " is not a number: " + value);
+        }
+    }
+
+    private static double readDouble(Properties rules, String key) {
+        String value = rules.getProperty(key).trim();
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Policy value " + key + " is not a number: " + value);
+        }
+    }
+
+    // The type names are the ones used in the catalog file.
+    private static ItemType readType(String text, String key) {
+        for (ItemType type : ItemType.values()) {
+            if (type.label().equalsIgnoreCase(text)) return type;
+        }
+        throw new IllegalArgumentException("Policy value " + key + " has an unknown item type: " + text);
+    }
+}
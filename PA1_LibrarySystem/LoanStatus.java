@@ -0,0 +1,27 @@
+package Library;
+
+// This class lists the status codes that the batch borrow and return methods of LibrarySystem
+// give back, one code for every item of the batch.
+public final class LoanStatus {
+
+    // The item was borrowed or returned.
+    public static final int OK = 0;
+    // There is no user or no item with the given ID.
+    public static final int UNKNOWN_USER = 1;
+    public static final int UNKNOWN_ITEM = 2;
+    // The user must pay the penalty before borrowing.
+    public static final int PENALTY_DUE = 3;
+    // The loan policy does not let this kind of user borrow this type of item.
+    public static final int RESTRICTED = 4;
+    // Another user has the item.
+    public static final int NOT_AVAILABLE = 5;
+    // The user already has as many items as allowed.
+    public static final int LIMIT_REACHED = 6;
+    // The item could not be borrowed for another reason, such as being a reference item.
+    public static final int FAILED = 7;
+    // The user does not have the item that was returned.
+    public static final int NOT_BORROWED = 8;
+
+    private LoanStatus() {
+    }
+}
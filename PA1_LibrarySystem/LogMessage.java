@@ -0,0 +1,61 @@
+package Library;
+
+import java.nio.charset.StandardCharsets;
+
+// This enum is used for the fixed messages written for borrow, return and pay commands.
+// A message is the user name, the text after the name, and then, for some messages,
+// the item title with the text after it and a number with the text after it.
+public enum LogMessage {
+    PENALTY_DUE(" cannot borrow ", ", you must first pay the penalty amount! ", "$"),
+    RARE_ITEM(" cannot borrow rare item!", null, null),
+    LIMITED_ITEM(" cannot borrow limited item!", null, null),
+    BORROWED(" successfully borrowed! ", "", null),
+    NOT_AVAILABLE(" cannot borrow ", ", it is not available!", null),
+    LIMIT_REACHED(" cannot borrow ", ", since the borrow limit has been reached!", null),
+    // Reference items get the same text as the borrow limit, as the assignment output expects.
+    REFERENCE_ITEM(" cannot borrow ", ", since the borrow limit has been reached!", null),
+    BORROW_FAILED(" failed to borrow ", "", null),
+    RETURNED(" successfully returned ", "", null),
+    RETURN_FAILED(" failed to return ", "", null),
+    HOLD_PLACED(" placed a hold on ", "", null),
+    HOLD_QUEUE_FULL(" cannot place a hold on ", ", the hold queue is full!", null),
+    HOLD_ALREADY_PLACED(" already has a hold on ", "", null),
+    HOLD_FILLED(" received held item ", "", null),
+    HOLD_DROPPED(" could not receive held item ", ", the hold is dropped!", null),
+    PAID(" has paid penalty", null, null);
+
+    // These fields are used to keep the text parts and their UTF-8 bytes, which are encoded only once.
+    private final String afterName;
+    private final String afterTitle;
+    private final String afterNumber;
+    final byte[] afterNameBytes;
+    final byte[] afterTitleBytes;
+    final byte[] afterNumberBytes;
+
+    LogMessage(String afterName, String afterTitle, String afterNumber) {
+        this.afterName = afterName;
+        this.afterTitle = afterTitle;
+        this.afterNumber = afterNumber;
+        this.afterNameBytes = afterName.getBytes(StandardCharsets.UTF_8);
+        this.afterTitleBytes = afterTitle == null ? null : afterTitle.getBytes(StandardCharsets.UTF_8);
+        this.afterNumberBytes = afterNumber == null ? null : afterNumber.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // These methods tell which parts the message has.
+    public boolean hasTitle() {
+        return afterTitle != null;
+    }
+
+    public boolean hasNumber() {
+        return afterNumber != null;
+    }
+
+    // This method builds the message as a string.
+    public String render(UserBase user, Item item, int number) {
+        StringBuilder out = new StringBuilder(96);
+        out.append(user.getName()).append(afterName);
+        if (afterTitle != null) out.append(item.getTitle()).append(afterTitle);
+        if (afterNumber != null) out.append(number).append(afterNumber);
+        return out.toString();
+    }
+}
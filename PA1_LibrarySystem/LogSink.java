@@ -0,0 +1,27 @@
+package Library;
+
+// This interface is used for any place that the transaction log lines can be written to.
+public interface LogSink extends AutoCloseable {
+
+    // This method is used to write one line of the log.
+    void write(String line);
+
+    // This method is used to write one line that is still being built, such as a reused StringBuilder.
+    // Sinks that can copy the characters directly should do so instead of making a string.
+    default void write(CharSequence line) {
+        write(line.toString());
+    }
+
+    // This method is used to write one of the fixed circulation messages for a user and an item.
+    // The number is only used by messages that show one, such as the penalty amount.
+    default void write(LogMessage message, UserBase user, Item item, int number) {
+        write(message.render(user, item, number));
+    }
+
+    // This method is used to push buffered lines to their destination.
+    void flush();
+
+    // This method is used to flush the sink and release what it holds.
+    @Override
+    void close();
+}
@@ -14,29 +14,31 @@ public class MagazineItem extends Item {
         this.category = category;
     }
 
+    // These methods return the publisher and category of the magazine.
+    public String getPublisher() { return publisher; }
+    public String getCategory() { return category; }
+
     // This method checks if the magazine can be borrowed.
     @Override
-    public boolean borrowItem(String userId, String borrowDate) {
+    public synchronized boolean borrowItem(int borrower, int borrowDay) {
         if (isBorrowed) return false;
         isBorrowed = true;
-        setBorrowInfo(borrowDate, userId);
+        setBorrowInfo(borrowDay, borrower);
         return true;
     }
 
     // This method is used to return the magazine and reset info.
     @Override
-    public void returnItem(String returnDate) {
+    public synchronized void returnItem(int returnDay) {
         isBorrowed = false;
         clearBorrowInfo();
     }
 
     // This method is used to show all magazine details.
     @Override
-    public String display() {
-        String status = isBorrowed ? "Borrowed Borrowed Date: " + borrowedDate + " Borrowed by: " + borrowedBy : "Available";
-        return "------ Item Information for " + id + " ------\n" +
-                "ID: " + id + " Name: " + title + " Status: " + status + "\n" +
-                "Publisher: " + publisher + " Category: " + category;
+    public void display(StringBuilder out) {
+        displayStatus(out);
+        out.append("Publisher: ").append(publisher).append(" Category: ").append(category);
     }
 
     // This method gives the same result as display().
@@ -1,20 +1,38 @@
 package Library;
 
+import java.io.IOException;
+
 // This class is used to start and run the library system.
 public class Main {
     public static void main(String[] args) {
 
         // This part checks if the correct number of arguments is given.
-        if(args.length != 4) {
+        if(args.length != 4 && args.length != 5) {
             System.out.println("Wrong usage! Try again.");
             return;
         }
 
+        // An optional fifth file replaces the default loan rules.
+        if (args.length == 5) {
+            try {
+                LoanPolicy.setActive(LoanPolicy.load(args[4]));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+
         // A new system is created and files are loaded step by step.
         LibrarySystem system = new LibrarySystem();     // Class name was updated from LibraryManagementSystem
         system.loadItems(args[0]);                      // Items are loaded from the first file.
         system.loadUsers(args[1]);                      // Users are loaded from the second file.
-        system.processCommands(args[2]);                // Commands are read from the third file.
-        system.writeOutput(args[3]);                    // Output is written to the fourth file.
+
+        // Output is streamed to the fourth file while the commands from the third file are read.
+        try (ChannelLogSink sink = new ChannelLogSink(args[3])) {
+            system.setLogSink(sink);
+            system.processCommands(args[2]);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 }
@@ -0,0 +1,226 @@
+package Library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// This class is used to load the item and user files from a memory-mapped buffer.
+// The bytes are split into fields in place, and strings are only made when the objects are built.
+// The file is expected to be in an ASCII-compatible charset (like UTF-8), the same one FileReader uses.
+public class MappedCatalogLoader {
+
+    // These fields are used to keep the mapped bytes and the part of them this loader reads.
+    private final ByteBuffer data;
+    private final int from;
+    private final int to;
+    private final Charset charset;
+
+    // This table keeps the scanned rows. Each row is stored as a field count followed by
+    // the start and end offset of every field, and rowStarts points at the count of each row.
+    private int[] fields;
+    private int fieldsSize;
+    private int[] rowStarts;
+    private int rowCount;
+
+    // This array is reused to copy a field out of the buffer before it is decoded.
+    private byte[] scratch;
+
+    // This constructor is used to read the bytes of data between from (inclusive) and to (exclusive).
+    MappedCatalogLoader(ByteBuffer data, int from, int to) {
+        this.data = data;
+        this.from = from;
+        this.to = to;
+        this.charset = Charset.defaultCharset();
+        this.fields = new int[256];
+        this.rowStarts = new int[32];
+        this.scratch = new byte[64];
+    }
+
+    // This method maps the items file and returns its items in file order.
+    public static List<Item> readItems(String filename) throws IOException {
+        ByteBuffer data = map(filename);
+        MappedCatalogLoader loader = new MappedCatalogLoader(data, 0, data.limit());
+        loader.scan();
+        return loader.buildItems();
+    }
+
+    // This method maps the users file and returns its users in file order.
+    public static List<UserBase> readUsers(String filename) throws IOException {
+        ByteBuffer data = map(filename);
+        MappedCatalogLoader loader = new MappedCatalogLoader(data, 0, data.limit());
+        loader.scan();
+        return loader.buildUsers();
+    }
+
+    // This method maps the whole file for reading. Files over 2 GB cannot be mapped in one piece.
+    static ByteBuffer map(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to be mapped: " + filename);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    // This method splits the bytes into lines and comma separated fields.
+    // Every field is trimmed like String.trim() does, and blank lines are skipped.
+    void scan() {
+        int pos = from;
+        while (pos < to) {
+            int lineEnd = pos;
+            while (lineEnd < to) {
+                byte b = data.get(lineEnd);
+                if (b == '\n' || b == '\r') break;
+                lineEnd++;
+            }
+            scanLine(pos, lineEnd);
+            // A "\r\n" pair is one line break, like BufferedReader.readLine() reads it.
+            pos = lineEnd + 1;
+            if (lineEnd < to && data.get(lineEnd) == '\r' && pos < to && data.get(pos) == '\n') pos++;
+        }
+    }
+
+    // This method adds one line to the table if it is not blank.
+    private void scanLine(int start, int end) {
+        if (isBlank(start, end)) return;
+        if (rowCount == rowStarts.length) rowStarts = Arrays.copyOf(rowStarts, rowCount * 2);
+        int countIndex = fieldsSize;
+        rowStarts[rowCount++] = countIndex;
+        append(0);
+        int count = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || data.get(i) == ',') {
+                int s = fieldStart;
+                int e = i;
+                while (s < e && isSpace(data.get(s))) s++;
+                while (e > s && isSpace(data.get(e - 1))) e--;
+                append(s);
+                append(e);
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+        fields[countIndex] = count;
+    }
+
+    // This method adds a value to the end of the field table.
+    private void append(int value) {
+        if (fieldsSize == fields.length) fields = Arrays.copyOf(fields, fieldsSize * 2);
+        fields[fieldsSize++] = value;
+    }
+
+    // This method builds the item objects from the scanned rows, using the rules of LibrarySystem.loadItems.
+    List<Item> buildItems() {
+        List<Item> result = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            int base = rowStarts[row];
+            int count = fields[base];
+            // Load Book
+            if (isLetter(base, 0, 'b') && count >= 6) {
+                String id = text(base, 1);
+                result.add(new BookItem(id, text(base, 2), text(base, 3), text(base, 4), text(base, 5)));
+            }
+            // Load Magazine
+            else if (isLetter(base, 0, 'm') && count >= 6) {
+                String id = text(base, 1);
+                result.add(new MagazineItem(id, text(base, 2), text(base, 3), text(base, 4), text(base, 5)));
+            }
+            // Load DVD
+            else if (isLetter(base, 0, 'd') && count >= 7) {
+                String id = text(base, 1);
+                int runtime = digits(base, 5);
+                result.add(new DVDItem(id, text(base, 2), text(base, 3), text(base, 4), runtime, text(base, 6)));
+            }
+            // Fallback for magazines with missing type
+            else if (count >= 5) {
+                String id = text(base, 0);
+                result.add(new MagazineItem(id, text(base, 1), text(base, 2), text(base, 3), text(base, 4)));
+            }
+        }
+        return result;
+    }
+
+    // This method builds the user objects from the scanned rows, using the rules of LibrarySystem.loadUsers.
+    // Rows that are too short for their user class are skipped.
+    List<UserBase> buildUsers() {
+        List<UserBase> result = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            int base = rowStarts[row];
+            int count = fields[base];
+            // Load Student user
+            if (isLetter(base, 0, 's') && count >= 7) {
+                int grade = Integer.parseInt(text(base, 6));
+                result.add(new StudentUser(text(base, 2), text(base, 1), text(base, 3), text(base, 4),
+                        text(base, 5), grade));
+            }
+            // Load Academic Staff user
+            else if (isLetter(base, 0, 'a') && count >= 7) {
+                result.add(new AcademicStaff(text(base, 2), text(base, 1), text(base, 3), text(base, 4),
+                        text(base, 5), text(base, 6)));
+            }
+            // Load Guest user
+            else if (isLetter(base, 0, 'g') && count >= 5) {
+                result.add(new Guest(text(base, 2), text(base, 1), text(base, 3), text(base, 4)));
+            }
+        }
+        return result;
+    }
+
+    // This method checks if a field is exactly the given letter, ignoring case.
+    private boolean isLetter(int base, int field, char lower) {
+        int s = fields[base + 1 + field * 2];
+        int e = fields[base + 2 + field * 2];
+        return e - s == 1 && (data.get(s) | 0x20) == lower;
+    }
+
+    // This method decodes a field into a string.
+    private String text(int base, int field) {
+        int s = fields[base + 1 + field * 2];
+        int len = fields[base + 2 + field * 2] - s;
+        if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+        for (int i = 0; i < len; i++) scratch[i] = data.get(s + i);
+        return new String(scratch, 0, len, charset);
+    }
+
+    // This method reads the digits of a field as a number and skips all other bytes,
+    // which is what replaceAll("[^0-9]", "") followed by Integer.parseInt does.
+    private int digits(int base, int field) {
+        int s = fields[base + 1 + field * 2];
+        int e = fields[base + 2 + field * 2];
+        long value = 0;
+        boolean found = false;
+        for (int i = s; i < e; i++) {
+            byte b = data.get(i);
+            if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                found = true;
+                if (value > Integer.MAX_VALUE) break;
+            }
+        }
+        if (!found || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + text(base, field) + "\"");
+        }
+        return (int) value;
+    }
+
+    // This method checks if a line has only whitespace in it.
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isSpace(data.get(i))) return false;
+        }
+        return true;
+    }
+
+    // Bytes up to the space character are whitespace for String.trim(); UTF-8 bytes above 0x7F are not.
+    private static boolean isSpace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+}
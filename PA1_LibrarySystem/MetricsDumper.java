@@ -0,0 +1,53 @@
+package Library;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// This class is used to write the library metrics to a file again and again at a fixed period.
+// Each dump goes to a temporary file that then replaces the old one, so a reader never sees
+// a half written file. Closing the dumper writes one last dump.
+public class MetricsDumper implements AutoCloseable {
+
+    // These fields are used to keep the metrics, the file and the thread that writes it.
+    private final LibraryMetrics metrics;
+    private final Path target;
+    private final Path temp;
+    private final ScheduledExecutorService timer;
+
+    // This constructor starts dumping the metrics every period.
+    public MetricsDumper(LibraryMetrics metrics, String filename, long period, TimeUnit unit) {
+        this.metrics = metrics;
+        this.target = Paths.get(filename);
+        this.temp = Paths.get(filename + ".tmp");
+        this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "library-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::dump, period, period, unit);
+    }
+
+    // This method writes the current metrics to the file.
+    public synchronized void dump() {
+        try {
+            Files.write(temp, metrics.dump().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // This method stops the timer and writes the final metrics.
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        dump();
+    }
+}
@@ -0,0 +1,81 @@
+package Library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// This class is used to read the lines of a file from a byte offset and to tell the byte
+// offset after the last line it returned, so a later run can go on from the same place.
+// Only lines that end with a line feed are returned: a last line without one may still be
+// in the middle of being written, so it is left for the next run.
+final class OffsetLineReader implements AutoCloseable {
+
+    // These fields are used to keep the file, its charset and the bytes read but not returned yet.
+    private final FileChannel channel;
+    private final Charset charset;
+    private byte[] buffer;
+    private int start;
+    private int end;
+    private int scanned;
+    private long offset;
+
+    // This constructor opens the file and skips to the offset. The default charset is used,
+    // the same as the FileReader of processCommands.
+    OffsetLineReader(String filename, long offset) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        this.channel.position(offset);
+        this.charset = Charset.defaultCharset();
+        this.buffer = new byte[1 << 16];
+        this.offset = offset;
+    }
+
+    // This method returns the next complete line without its line feed, or null if there is none.
+    String readLine() throws IOException {
+        while (true) {
+            for (int i = scanned; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    String line = new String(buffer, start, i - start, charset);
+                    offset += i + 1 - start;
+                    start = i + 1;
+                    scanned = start;
+                    return line;
+                }
+            }
+            scanned = end;
+            if (!fill()) return null;
+        }
+    }
+
+    // This method returns the byte offset just after the last line returned.
+    long offset() {
+        return offset;
+    }
+
+    // This method moves the unread bytes to the front, grows the buffer for a long line,
+    // and reads more of the file. It returns false at the end of the file.
+    private boolean fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scanned -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            byte[] bigger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, bigger, 0, end);
+            buffer = bigger;
+        }
+        int read = channel.read(ByteBuffer.wrap(buffer, end, buffer.length - end));
+        if (read <= 0) return false;
+        end += read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,129 @@
+package Library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+// This class is used to load the catalog files on several cores at once.
+// The mapped file is cut into chunks at line breaks, every chunk is parsed on its own,
+// and the results are merged into one sorted index that cannot be changed afterwards.
+public class ParallelCatalogLoader {
+
+    // Each thread gets a few chunks, so one slow chunk does not keep the others waiting.
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Files smaller than this are not worth cutting into more pieces.
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    // This method loads the items file and merges it over the existing items.
+    public static NavigableMap<String, Item> loadItems(String filename, SortedMap<String, Item> existing,
+                                                       ForkJoinPool pool) throws IOException {
+        return load(filename, existing, pool, MappedCatalogLoader::buildItems, Item::getId);
+    }
+
+    // This method loads the users file and merges it over the existing users.
+    public static NavigableMap<String, UserBase> loadUsers(String filename, SortedMap<String, UserBase> existing,
+                                                           ForkJoinPool pool) throws IOException {
+        return load(filename, existing, pool, MappedCatalogLoader::buildUsers, user -> user.id);
+    }
+
+    // This method parses the chunks in parallel and builds the merged index.
+    // When an ID appears more than once, the last one in the file wins, as with TreeMap.put.
+    private static <T> NavigableMap<String, T> load(String filename, SortedMap<String, T> existing, ForkJoinPool pool,
+                                                    Function<MappedCatalogLoader, List<T>> builder,
+                                                    Function<T, String> key) throws IOException {
+        ByteBuffer data = MappedCatalogLoader.map(filename);
+        int[] bounds = split(data, pool.getParallelism() * CHUNKS_PER_THREAD);
+        List<List<T>> parts = newParts(bounds.length - 1);
+        pool.invoke(new ChunkTask<>(data, bounds, parts, builder, 0, parts.size()));
+
+        int total = 0;
+        for (List<T> part : parts) total += part.size();
+        Object[] all = new Object[total];
+        int n = 0;
+        for (List<T> part : parts) {
+            for (T value : part) all[n++] = value;
+        }
+        @SuppressWarnings("unchecked")
+        T[] sorted = (T[]) all;
+        // parallelSort is stable, so later rows stay after earlier rows with the same ID.
+        Arrays.parallelSort(sorted, Comparator.comparing(key));
+
+        TreeMap<String, T> merged = new TreeMap<>(existing);
+        for (int i = 0; i < sorted.length; i++) {
+            if (i + 1 < sorted.length && key.apply(sorted[i]).equals(key.apply(sorted[i + 1]))) continue;
+            merged.put(key.apply(sorted[i]), sorted[i]);
+        }
+        return Collections.unmodifiableNavigableMap(merged);
+    }
+
+    // This method finds the chunk borders. Every border is placed just after a line break.
+    private static int[] split(ByteBuffer data, int wanted) {
+        int size = data.limit();
+        int chunks = Math.max(1, Math.min(wanted, size / MIN_CHUNK_SIZE));
+        int[] bounds = new int[chunks + 1];
+        int count = 1;
+        for (int i = 1; i < chunks; i++) {
+            int pos = Math.max((int) ((long) size * i / chunks), bounds[count - 1]);
+            while (pos < size && data.get(pos) != '\n' && data.get(pos) != '\r') pos++;
+            if (pos < size && data.get(pos) == '\r') pos++;
+            if (pos < size && data.get(pos) == '\n') pos++;
+            if (pos > bounds[count - 1] && pos < size) bounds[count++] = pos;
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    // This method creates the list that keeps the result of every chunk.
+    // Its size never changes, so the tasks can set their own slots at the same time.
+    private static <T> List<List<T>> newParts(int count) {
+        List<List<T>> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) parts.add(new ArrayList<>());
+        return parts;
+    }
+
+    // This task parses a range of chunks, splitting the range in two until one chunk is left.
+    private static class ChunkTask<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer data;
+        private final int[] bounds;
+        private final List<List<T>> parts;
+        private final Function<MappedCatalogLoader, List<T>> builder;
+        private final int lo;
+        private final int hi;
+
+        ChunkTask(ByteBuffer data, int[] bounds, List<List<T>> parts,
+                  Function<MappedCatalogLoader, List<T>> builder, int lo, int hi) {
+            this.data = data;
+            this.bounds = bounds;
+            this.parts = parts;
+            this.builder = builder;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                MappedCatalogLoader loader = new MappedCatalogLoader(data.duplicate(), bounds[lo], bounds[hi]);
+                loader.scan();
+                parts.set(lo, builder.apply(loader));
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ChunkTask<>(data, bounds, parts, builder, lo, mid),
+                    new ChunkTask<>(data, bounds, parts, builder, mid, hi));
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package Library;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// This class is used to run the circulation of one library on several shards at the same time.
+// Every item belongs to one shard, chosen from the hash of its ID, and every shard has its own
+// worker thread, command queue and log sink. One router reads the command file and hands each
+// borrow and return to the shard that owns the item, and each pay to a shard chosen by the user.
+// Users are shared by all shards: the commands go through CirculationDesks, which holds the
+// lock stripe of the user, so the loan count and the penalty of a user stay the same on every shard.
+// The result is the same as running the file in order. Commands of one shard run in file order,
+// and a command waits for the earlier commands it depends on that sit on other shards:
+// the earlier commands of its user, the earlier commands of the user who holds the item it borrows,
+// and, before a borrow that may auto-return overdue loans, the earlier commands on the shards of those loans.
+// Every wait is for an earlier command and every queue is in file order, so the earliest
+// unfinished command can always run. Commands that do not depend on each other run in parallel.
+public class ShardedLibrary {
+
+    // This is how many commands may wait in the queue of one shard before the router waits.
+    private static final int QUEUE_CAPACITY = 4096;
+
+    // This task tells a shard that no more commands will come.
+    private static final Task STOP = new Task(0, null, null, null, null, null);
+
+    // These fields are used to keep the shared library, the user locks over it and the number of shards.
+    private final LibrarySystem system;
+    private final CirculationDesks desks;
+    private final int shardCount;
+
+    // This constructor is used to share a loaded library between shards.
+    // The user locks have the given number of stripes, rounded up to a power of two.
+    public ShardedLibrary(LibrarySystem system, int shards, int stripes) {
+        if (shards < 1) throw new IllegalArgumentException("Shard count must be at least 1: " + shards);
+        this.system = system;
+        this.desks = new CirculationDesks(system, stripes);
+        this.shardCount = shards;
+    }
+
+    // This method returns the shard that owns an item.
+    public int shardOf(String itemId) {
+        return spread(itemId.hashCode()) % shardCount;
+    }
+
+    // This method runs the borrow, return and pay commands of the file on the shards and waits
+    // until all of them are done. Shard i writes its results to sinks[i].
+    // The display commands are left to LibrarySystem, as in CirculationDesks.
+    public void run(String commandFile, LogSink[] sinks) throws IOException, InterruptedException {
+        if (sinks.length != shardCount) {
+            throw new IllegalArgumentException("Every shard needs one sink");
+        }
+        Map<String, UserOrder> orders = new ConcurrentHashMap<>();
+        Shard[] shards = new Shard[shardCount];
+        Thread[] workers = new Thread[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(this, shards, orders, sinks[i]);
+        }
+        for (int i = 0; i < shardCount; i++) {
+            workers[i] = new Thread(shards[i], "library-shard-" + i);
+            workers[i].start();
+        }
+        try {
+            route(commandFile, shards, orders);
+        } finally {
+            for (Shard shard : shards) shard.queue.put(STOP);
+            for (Thread worker : workers) worker.join();
+        }
+        for (Shard shard : shards) {
+            if (shard.failure != null) throw shard.failure;
+        }
+    }
+
+    // This method reads the commands and puts each one in the queue of its shard.
+    // The return date is the date of the last borrow, the same as in LibrarySystem.
+    private void route(String commandFile, Shard[] shards, Map<String, UserOrder> orders)
+            throws IOException, InterruptedException {
+        CommandDecoder decoder = new CommandDecoder();
+        Command command = new Command();
+        LocalDate currentDate = null;
+        // The position of the command in the file, and how many commands every shard was given so far
+        long sequence = 0;
+        long[] issued = new long[shardCount];
+        try (BufferedReader br = new BufferedReader(new FileReader(commandFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || !decoder.decode(line, command)) continue;
+                String userId = command.userId;
+                String itemId = command.itemId;
+                UserOrder order;
+                int target;
+                Task task;
+                switch (command.opcode) {
+                    case Command.BORROW: {
+                        LocalDate date = command.date;
+                        currentDate = date;
+                        target = shardOf(itemId);
+                        Shard shard = shards[target];
+                        order = orderOf(orders, userId);
+                        task = new Task(sequence, order, userId, system.getItems().get(itemId), issued.clone(),
+                                () -> desks.borrow(userId, itemId, date, shard.out));
+                        break;
+                    }
+                    case Command.RETURN: {
+                        LocalDate date = (currentDate != null) ? currentDate : LocalDate.now();
+                        target = shardOf(itemId);
+                        Shard shard = shards[target];
+                        order = orderOf(orders, userId);
+                        task = new Task(sequence, order, userId, null, null,
+                                () -> desks.returnItem(userId, itemId, date, shard.out));
+                        break;
+                    }
+                    case Command.PAY: {
+                        target = spread(userId.hashCode()) % shardCount;
+                        Shard shard = shards[target];
+                        order = orderOf(orders, userId);
+                        task = new Task(sequence, order, userId, null, null, () -> desks.pay(userId, shard.out));
+                        break;
+                    }
+                    default:
+                        continue;
+                }
+                order.add(task);
+                shards[target].queue.put(task);
+                issued[target]++;
+                sequence++;
+            }
+        }
+    }
+
+    // This method gives the ordering point of a user, making it on the first command of the user.
+    private static UserOrder orderOf(Map<String, UserOrder> orders, String userId) {
+        UserOrder order = orders.get(userId);
+        if (order == null) {
+            order = new UserOrder();
+            orders.put(userId, order);
+        }
+        return order;
+    }
+
+    // This method waits until the commands that a borrow depends on have run.
+    // The user who holds the item may free it with an auto-return in an earlier borrow of their own,
+    // and the overdue loans of the borrower belong to shards that may still have earlier commands on them.
+    private void awaitBorrow(Task task, Shard[] shards, Map<String, UserOrder> orders) throws InterruptedException {
+        Item item = task.item;
+        if (item != null) {
+            while (true) {
+                int holder = item.getBorrowedBy();
+                if (holder == Item.NO_BORROWER) break;
+                UserOrder order = orders.get(UserHandles.idOf(holder));
+                if (order == null) break;
+                order.awaitBefore(task.sequence);
+                // The earlier commands of the holder are done and the later ones wait for this shard,
+                // so the holder can only have changed here by an auto-return that already happened.
+                if (item.getBorrowedBy() == holder) break;
+            }
+        }
+        UserBase user = system.getUsers().get(task.userId);
+        if (user == null) return;
+        // Only the commands of this user change its loans, and the earlier ones are done.
+        for (Item loan : user.borrowedItems) {
+            int shard = shardOf(loan.getId());
+            shards[shard].awaitCompleted(task.shardsBefore[shard]);
+        }
+    }
+
+    // This method spreads the high bits of a hash and makes it positive.
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    // This class is used to keep one command with its place in the file.
+    private static final class Task {
+        final long sequence;
+        final UserOrder order;
+        final String userId;
+        // Only a borrow has these: the item and how many commands every shard had before it.
+        final Item item;
+        final long[] shardsBefore;
+        final Runnable command;
+
+        Task(long sequence, UserOrder order, String userId, Item item, long[] shardsBefore, Runnable command) {
+            this.sequence = sequence;
+            this.order = order;
+            this.userId = userId;
+            this.item = item;
+            this.shardsBefore = shardsBefore;
+            this.command = command;
+        }
+    }
+
+    // This class is used to keep the unfinished commands of one user in file order.
+    // The router adds them, and they are removed in the same order as they finish,
+    // since a command waits for the earlier commands of its user before it runs.
+    private static final class UserOrder {
+        private final ArrayDeque<Task> pending = new ArrayDeque<>();
+
+        synchronized void add(Task task) {
+            pending.add(task);
+        }
+
+        // This method waits until every command of the user that comes before the position is done.
+        synchronized void awaitBefore(long sequence) throws InterruptedException {
+            while (!pending.isEmpty() && pending.peek().sequence < sequence) wait();
+        }
+
+        synchronized void complete() {
+            pending.poll();
+            notifyAll();
+        }
+    }
+
+    // This class is used to run the commands of one shard on its own thread.
+    private static final class Shard implements Runnable {
+        final BlockingQueue<Task> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final LogSink out;
+        private final ShardedLibrary library;
+        private final Shard[] shards;
+        private final Map<String, UserOrder> orders;
+        // How many commands of this shard are done.
+        private long completed;
+        // The first error of the shard, which is thrown by run after all shards stop.
+        volatile RuntimeException failure;
+
+        Shard(ShardedLibrary library, Shard[] shards, Map<String, UserOrder> orders, LogSink out) {
+            this.library = library;
+            this.shards = shards;
+            this.orders = orders;
+            this.out = out;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Task task = queue.take();
+                    if (task == STOP) break;
+                    task.order.awaitBefore(task.sequence);
+                    if (task.shardsBefore != null) library.awaitBorrow(task, shards, orders);
+                    try {
+                        // After an error the remaining commands are still taken and marked done,
+                        // so neither the router nor the other shards wait for them forever.
+                        if (failure == null) task.command.run();
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    } finally {
+                        task.order.complete();
+                        completeOne();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                out.flush();
+            }
+        }
+
+        // This method waits until the first count commands of this shard are done.
+        synchronized void awaitCompleted(long count) throws InterruptedException {
+            while (completed < count) wait();
+        }
+
+        private synchronized void completeOne() {
+            completed++;
+            notifyAll();
+        }
+    }
+}
@@ -16,31 +16,22 @@ public class StudentUser extends UserBase {
         this.grade = grade;
     }
 
-    // This method returns the maximum number of items allowed.
-    @Override
-    public int getMaxItems() {
-        return 5;
-    }
-
-    // This method gives the overdue day limit for students.
-    @Override
-    public int getOverdueLimit() {
-        return 30;
-    }
+    // These methods return the academic info of the student.
+    public String getDepartment() { return department; }
+    public String getFaculty() { return faculty; }
+    public int getGrade() { return grade; }
 
-    // This method prevents reference items from being borrowed.
+    // Students follow the student rules of the loan policy.
     @Override
-    public boolean borrowItem(Item item, java.time.LocalDate borrowDate) {
-        if (item.getType().equalsIgnoreCase("reference"))
-            return false;
-        return super.borrowItem(item, borrowDate);
+    public LoanPolicy.UserClass getUserClass() {
+        return LoanPolicy.UserClass.STUDENT;
     }
 
-    // This method returns the formatted student information.
+    // This method writes the formatted student information.
     @Override
-    public String toString() {
-        return "------ User Information for " + id + " ------\n" +
-                "Name: " + name + " Phone: " + phoneNumber + "\n" +
-                "Faculty: " + faculty + " Department: " + department + " Grade: " + grade + "th";
+    public void display(StringBuilder out) {
+        displayHeader(out, name);
+        out.append("Faculty: ").append(faculty).append(" Department: ").append(department)
+                .append(" Grade: ").append(grade).append("th");
     }
 }
@@ -0,0 +1,502 @@
+package Library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// This class is used to search items by the words in their titles.
+// Every title is split into lower-case words, and each word keeps the list of items it appears in,
+// sorted by item ID. The words are kept in a trie, so all words that start with a prefix sit under
+// one node, and every node also keeps the items with the smallest IDs among the words below it.
+// Words within a small edit distance are found for typing mistakes by walking only the branches
+// that can still be close enough.
+// A search reads the matches of every query word from the best kind of match to the worst and
+// in ID order, and stops as soon as no item it has not seen yet can get into the result,
+// so a short prefix does not cost the whole catalog.
+// Items are added one by one while the catalog is loaded.
+public class TitleSearchIndex {
+
+    // These are the scores a query word gives to an item, from best to worst match.
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int FUZZY_SCORE = 1;
+    // This is how many of the smallest item IDs below a node are kept in the node.
+    private static final int TOP_IDS = 32;
+
+    // These fields are used to keep the items and their IDs by position, the word lists and
+    // the position of every item ID, so a reloaded item replaces the old one.
+    private final List<Item> items = new ArrayList<>();
+    private final List<String> ids = new ArrayList<>();
+    private final TrieNode words = new TrieNode();
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    // This method adds an item to the index. An item with the same ID as an earlier one hides it.
+    public void add(Item item) {
+        int position = items.size();
+        Integer old = positions.put(item.getId(), position);
+        if (old != null) items.set(old, null);
+        items.add(item);
+        ids.add(item.getId());
+        for (String word : tokenize(item.getTitle())) {
+            TrieNode node = words.childOrAdd(word.charAt(0));
+            for (int i = 1; i < word.length(); i++) {
+                if (node.below == null) node.below = new Postings();
+                insert(node.below, position, TOP_IDS);
+                node = node.childOrAdd(word.charAt(i));
+            }
+            if (node.postings == null) node.postings = new Postings();
+            insert(node.postings, position, Integer.MAX_VALUE);
+        }
+    }
+
+    // This method puts a position in its place in the list; a full list keeps the smallest IDs.
+    // Items usually come in ID order, so a new position is nearly always put at the end.
+    private void insert(Postings list, int position, int capacity) {
+        int i = list.size;
+        while (i > 0 && compareIds(list.values[i - 1], position) > 0) i--;
+        // A word that appears twice in one title, or twice under one node, is kept once.
+        if (i > 0 && list.values[i - 1] == position) return;
+        if (i == capacity) return;
+        if (list.size == capacity) list.size--;
+        if (list.size == list.values.length) {
+            list.values = Arrays.copyOf(list.values, (int) Math.min(capacity, 2L * list.size));
+        }
+        System.arraycopy(list.values, i, list.values, i + 1, list.size - i);
+        list.values[i] = position;
+        list.size++;
+    }
+
+    // This method returns at most limit items whose titles match the query, best matches first.
+    // Every query word matches a title word exactly, as a prefix, or within a small edit distance,
+    // and the score of an item is the sum of the best match of every query word;
+    // ties are ordered by item ID. Borrowed items are left out when availableOnly is true.
+    public List<Item> search(String query, int limit, boolean availableOnly) {
+        List<String> queryWords = tokenize(query);
+        List<Item> found = new ArrayList<>();
+        if (queryWords.isEmpty() || limit <= 0) return found;
+        WordMatches[] matches = new WordMatches[queryWords.size()];
+        for (int q = 0; q < matches.length; q++) matches[q] = new WordMatches(queryWords.get(q));
+
+        // The worst of the best hits so far is at the head of the queue.
+        PriorityQueue<Hit> best = new PriorityQueue<>((a, b) -> compareHits(b, a));
+        PositionSet seen = new PositionSet();
+        // The distance table for the longest query word, with room for title words two letters longer.
+        int longest = 0;
+        for (String word : queryWords) longest = Math.max(longest, word.length());
+        int[][] rows = new int[longest + 3][longest + 1];
+        while (true) {
+            for (WordMatches match : matches) {
+                int position = match.next();
+                if (position < 0 || !seen.add(position)) continue;
+                Item item = items.get(position);
+                if (item == null || (availableOnly && item.isBorrowed())) continue;
+                Hit hit = new Hit(position, score(item.getTitle(), queryWords, rows));
+                if (best.size() < limit) {
+                    best.add(hit);
+                } else if (compareHits(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+            // An item not seen yet has no more than the level of every query word, and when it
+            // ties it comes after the next match of every word that still has matches.
+            int threshold = 0;
+            int last = -1;
+            for (WordMatches match : matches) {
+                int level = match.level();
+                if (level == 0) continue;
+                threshold += level;
+                int next = match.peek();
+                if (last < 0 || compareIds(next, last) > 0) last = next;
+            }
+            if (threshold == 0) break;
+            if (best.size() == limit) {
+                Hit worst = best.peek();
+                if (worst.score > threshold || (worst.score == threshold && compareIds(worst.position, last) < 0)) break;
+            }
+        }
+
+        Hit[] hits = best.toArray(new Hit[0]);
+        Arrays.sort(hits, this::compareHits);
+        for (Hit hit : hits) found.add(items.get(hit.position));
+        return found;
+    }
+
+    // This method orders hits by score, best first, and then by item ID.
+    private int compareHits(Hit a, Hit b) {
+        if (a.score != b.score) return Integer.compare(b.score, a.score);
+        return compareIds(a.position, b.position);
+    }
+
+    // This method orders positions by item ID; a hidden item comes before the one that replaced it.
+    private int compareIds(int a, int b) {
+        int byId = ids.get(a).compareTo(ids.get(b));
+        return byId != 0 ? byId : Integer.compare(a, b);
+    }
+
+    // This method gives the score of a title: for every query word the best match among the title words.
+    // The words are read in place from the lower-case title, the same way tokenize splits them.
+    private static int score(String title, List<String> queryWords, int[][] rows) {
+        String lower = title.toLowerCase(Locale.ROOT);
+        int total = 0;
+        for (String word : queryWords) {
+            int best = 0;
+            int start = -1;
+            for (int i = 0; i <= lower.length() && best < EXACT_SCORE; i++) {
+                boolean inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+                if (inWord && start < 0) start = i;
+                if (!inWord && start >= 0) {
+                    best = Math.max(best, match(word, lower, start, i, rows));
+                    start = -1;
+                }
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    // This method tells how the title word from start to end matches a query word, the same way
+    // the trie finds them. A typo in the first letter is rare, so only words with the same first
+    // letter are compared.
+    private static int match(String word, String text, int start, int end, int[][] rows) {
+        int length = end - start;
+        if (length >= word.length() && text.regionMatches(start, word, 0, word.length())) {
+            return length == word.length() ? EXACT_SCORE : PREFIX_SCORE;
+        }
+        int maxEdits = maxEdits(word.length());
+        if (maxEdits == 0 || text.charAt(start) != word.charAt(0)) return 0;
+        if (Math.abs(length - word.length()) > maxEdits) return 0;
+        // Row i of the table is the distance of the first i title letters to every query prefix.
+        for (int j = 0; j <= word.length(); j++) rows[0][j] = j;
+        for (int i = 1; i <= length; i++) {
+            int[] previous = rows[i - 1];
+            int[] row = rows[i];
+            row[0] = i;
+            int best = i;
+            char letter = text.charAt(start + i - 1);
+            for (int j = 1; j <= word.length(); j++) {
+                int cost = word.charAt(j - 1) == letter ? 0 : 1;
+                row[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], row[j - 1]) + 1);
+                best = Math.min(best, row[j]);
+            }
+            if (best > maxEdits) return 0;
+        }
+        return rows[length][word.length()] <= maxEdits ? FUZZY_SCORE : 0;
+    }
+
+    // Short words must match exactly; longer words may have one or two mistakes.
+    private static int maxEdits(int length) {
+        if (length <= 3) return 0;
+        if (length <= 7) return 1;
+        return 2;
+    }
+
+    // This method adds the postings of every word under the node, not counting the node itself.
+    private static void collectBelow(TrieNode node, List<Postings> out) {
+        for (TrieNode child : node.children) {
+            if (child.postings != null) out.add(child.postings);
+            collectBelow(child, out);
+        }
+    }
+
+    // This method finds the words whose Levenshtein distance to the query word is at most maxEdits.
+    // Every node at the given depth fills row depth of the distance table from the row of its parent,
+    // which is the distance of every query prefix to the letters on the path to the node.
+    // A branch is left as soon as no cell of its row is within maxEdits, since longer words
+    // cannot get closer, and the walk never goes more than maxEdits letters past the query length.
+    private static void closeWords(TrieNode node, char letter, int depth, String word, int maxEdits,
+                                   int[][] rows, TrieNode skip, List<Postings> out) {
+        if (node == skip) return;
+        int n = word.length();
+        int[] previous = rows[depth - 1];
+        int[] row = rows[depth];
+        row[0] = depth;
+        int best = depth;
+        for (int j = 1; j <= n; j++) {
+            int cost = word.charAt(j - 1) == letter ? 0 : 1;
+            row[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], row[j - 1]) + 1);
+            best = Math.min(best, row[j]);
+        }
+        if (best > maxEdits) return;
+        if (node.postings != null && row[n] <= maxEdits) out.add(node.postings);
+        if (depth == n + maxEdits) return;
+        for (int i = 0; i < node.children.length; i++) {
+            closeWords(node.children[i], node.labels[i], depth + 1, word, maxEdits, rows, skip, out);
+        }
+    }
+
+    // This method splits a text into lower-case words of letters and digits.
+    static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inWord && start < 0) start = i;
+            if (!inWord && start >= 0) {
+                result.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    // This class is used to read the matches of one query word: first the items with the word itself,
+    // then the items with a longer word that starts with it, then the items with a close word.
+    // Each kind is read in ID order, and the next kind is only looked up when the one before runs out.
+    private final class WordMatches {
+        private final String word;
+        private final TrieNode exact;
+        private int level = EXACT_SCORE;
+        private Merge current;
+        // The position read last from the IDs kept in the node, where the full walk below it goes on.
+        private int lastTop = -1;
+        private boolean fullWalk;
+
+        WordMatches(String word) {
+            this.word = word;
+            TrieNode node = words;
+            for (int i = 0; i < word.length() && node != null; i++) node = node.child(word.charAt(i));
+            this.exact = node;
+            List<Postings> lists = new ArrayList<>();
+            if (exact != null && exact.postings != null) lists.add(exact.postings);
+            this.current = new Merge(lists, -1);
+            settle();
+        }
+
+        // The score a match read next gives at most, or 0 when there are no more matches.
+        int level() {
+            return level;
+        }
+
+        int peek() {
+            return current.peek();
+        }
+
+        // This method gives the next match, or -1 when there are none left.
+        int next() {
+            int position = current.peek();
+            if (position < 0) return -1;
+            current.advance();
+            if (level == PREFIX_SCORE && !fullWalk) lastTop = position;
+            settle();
+            return position;
+        }
+
+        // This method moves on to the next kind of match while the current one has run out.
+        private void settle() {
+            while (current.peek() < 0 && level > 0) {
+                List<Postings> lists = new ArrayList<>();
+                if (level == EXACT_SCORE) {
+                    level = PREFIX_SCORE;
+                    if (exact != null && exact.below != null) lists.add(exact.below);
+                } else if (level == PREFIX_SCORE && !fullWalk && exact != null && exact.below != null
+                        && exact.below.size == TOP_IDS) {
+                    // The node keeps only the first IDs, so the rest are merged from the words below.
+                    fullWalk = true;
+                    collectBelow(exact, lists);
+                    current = new Merge(lists, lastTop);
+                    continue;
+                } else if (level == PREFIX_SCORE) {
+                    level = FUZZY_SCORE;
+                    int maxEdits = maxEdits(word.length());
+                    TrieNode first = words.child(word.charAt(0));
+                    if (maxEdits > 0 && first != null) {
+                        // Words that start with the query word were read above, so the walk skips their node.
+                        int[][] rows = new int[word.length() + maxEdits + 1][word.length() + 1];
+                        for (int j = 0; j <= word.length(); j++) rows[0][j] = j;
+                        closeWords(first, word.charAt(0), 1, word, maxEdits, rows, exact, lists);
+                    }
+                } else {
+                    level = 0;
+                }
+                current = new Merge(lists, -1);
+            }
+        }
+    }
+
+    // This class is used to read several position lists sorted by ID as one list in ID order,
+    // giving every position once. It starts after the given position, or at the start for -1.
+    private final class Merge {
+        private final Postings[] lists;
+        private final int[] at;
+        // The lists that are not used up, as a heap on the ID of their current position.
+        private final int[] heap;
+        private int heapSize;
+        private int last = -1;
+
+        Merge(List<Postings> postings, int after) {
+            this.lists = postings.toArray(new Postings[0]);
+            this.at = new int[lists.length];
+            this.heap = new int[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                if (after >= 0) at[i] = firstAfter(lists[i], after);
+                if (at[i] < lists[i].size) push(i);
+            }
+            last = after;
+            skipRepeats();
+        }
+
+        int peek() {
+            return heapSize == 0 ? -1 : head(heap[0]);
+        }
+
+        void advance() {
+            last = head(heap[0]);
+            step();
+            skipRepeats();
+        }
+
+        // A position that is in several lists is given once.
+        private void skipRepeats() {
+            while (heapSize > 0 && last >= 0 && head(heap[0]) == last) step();
+        }
+
+        // This method moves the first list of the heap to its next position.
+        private void step() {
+            int list = heap[0];
+            at[list]++;
+            if (at[list] < lists[list].size) {
+                siftDown(0);
+            } else {
+                heap[0] = heap[--heapSize];
+                if (heapSize > 0) siftDown(0);
+            }
+        }
+
+        private int head(int list) {
+            return lists[list].values[at[list]];
+        }
+
+        private int firstAfter(Postings list, int after) {
+            int low = 0;
+            int high = list.size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareIds(list.values[mid], after) <= 0) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        private void push(int list) {
+            int i = heapSize++;
+            heap[i] = list;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compareIds(head(heap[parent]), head(heap[i])) <= 0) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < heapSize && compareIds(head(heap[left]), head(heap[smallest])) < 0) smallest = left;
+                if (right < heapSize && compareIds(head(heap[right]), head(heap[smallest])) < 0) smallest = right;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int list = heap[i];
+            heap[i] = heap[j];
+            heap[j] = list;
+        }
+    }
+
+    // This class is used to keep one item of the result with its score.
+    private static final class Hit {
+        final int position;
+        final int score;
+
+        Hit(int position, int score) {
+            this.position = position;
+            this.score = score;
+        }
+    }
+
+    // This class is used to remember which positions a search has already looked at, without boxing.
+    private static final class PositionSet {
+        private int[] slots = new int[64];
+        private int size;
+
+        PositionSet() {
+            Arrays.fill(slots, -1);
+        }
+
+        // This method adds the position and tells whether it was new.
+        boolean add(int position) {
+            if (2 * (size + 1) > slots.length) grow();
+            int mask = slots.length - 1;
+            int i = (position * 0x9E3779B9) >>> 1 & mask;
+            while (slots[i] >= 0) {
+                if (slots[i] == position) return false;
+                i = (i + 1) & mask;
+            }
+            slots[i] = position;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            int[] old = slots;
+            slots = new int[old.length * 2];
+            Arrays.fill(slots, -1);
+            size = 0;
+            for (int position : old) {
+                if (position >= 0) add(position);
+            }
+        }
+    }
+
+    // This class is used to keep one letter step of the words. The letters of the children are
+    // kept sorted in a small array, and a node where a word ends keeps the postings of that word.
+    // Every node with words under it keeps the first TOP_IDS of their items in ID order.
+    private static class TrieNode {
+        private static final char[] NO_LABELS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        char[] labels = NO_LABELS;
+        TrieNode[] children = NO_CHILDREN;
+        Postings postings;
+        Postings below;
+
+        TrieNode child(char letter) {
+            int i = Arrays.binarySearch(labels, letter);
+            return i >= 0 ? children[i] : null;
+        }
+
+        TrieNode childOrAdd(char letter) {
+            int i = Arrays.binarySearch(labels, letter);
+            if (i >= 0) return children[i];
+            i = -i - 1;
+            char[] newLabels = new char[labels.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            newLabels[i] = letter;
+            newChildren[i] = new TrieNode();
+            System.arraycopy(labels, i, newLabels, i + 1, labels.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            labels = newLabels;
+            children = newChildren;
+            return newChildren[i];
+        }
+    }
+
+    // This class is used to keep item positions sorted by item ID, each position once.
+    private static class Postings {
+        int[] values = new int[2];
+        int size;
+    }
+}
@@ -0,0 +1,154 @@
+package Library;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// This class is used to keep an append-only journal of the commands given to the library.
+// Commands are collected in a batch and the whole batch is made durable with one fsync
+// (group commit), so a crash loses at most the last unfinished batch.
+// Every record is stored as its length, a CRC32 of its bytes and the UTF-8 bytes of the command.
+// A record that was cut off by a crash is removed when the journal is opened again,
+// so the records appended after it can still be read.
+public class TransactionJournal implements AutoCloseable {
+
+    // This is the size of the length and checksum in front of every record.
+    private static final int HEADER_SIZE = 8;
+
+    // These fields are used to keep the open journal file and the batch that is not written yet.
+    private final FileChannel channel;
+    private final int batchSize;
+    private final CRC32 crc;
+    private ByteBuffer batch;
+    private int pending;
+
+    // This constructor opens the journal for appending. A batch is forced to disk
+    // after batchSize commands, or earlier when commit is called.
+    // Anything after the last complete record is cut off before new records are written.
+    public TransactionJournal(String filename, int batchSize) throws IOException {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = validLength(channel);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(false);
+            }
+            channel.position(end);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.batchSize = batchSize;
+        this.crc = new CRC32();
+        this.batch = ByteBuffer.allocate(1 << 16);
+        this.pending = 0;
+    }
+
+    // This method adds a command to the current batch and commits the batch when it is full.
+    public void append(String command) throws IOException {
+        byte[] bytes = command.getBytes(StandardCharsets.UTF_8);
+        if (batch.remaining() < HEADER_SIZE + bytes.length) grow(HEADER_SIZE + bytes.length);
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        batch.putInt(bytes.length);
+        batch.putInt((int) crc.getValue());
+        batch.put(bytes);
+        if (++pending >= batchSize) commit();
+    }
+
+    // This method writes the current batch and waits until it is on the disk.
+    public void commit() throws IOException {
+        if (pending == 0) return;
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        channel.force(false);
+        batch.clear();
+        pending = 0;
+    }
+
+    // This method commits what is left and closes the file.
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // This method reads all complete records of a journal in the order they were written.
+    // Reading stops at the first record that is cut off or has a wrong checksum,
+    // which is what a crash in the middle of a write leaves behind.
+    public static List<String> read(String filename) throws IOException {
+        List<String> commands = new ArrayList<>();
+        ByteBuffer data = MappedCatalogLoader.map(filename);
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[256];
+        while (data.remaining() >= HEADER_SIZE) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length < 0 || length > data.remaining()) break;
+            if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+            data.get(bytes, 0, length);
+            crc.reset();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != checksum) break;
+            commands.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+        return commands;
+    }
+
+    // This method finds the end of the last complete record with a correct checksum.
+    // It reads through the channel, so the file is not mapped while it is being truncated.
+    private static long validLength(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        ByteBuffer body = ByteBuffer.allocate(256);
+        CRC32 crc = new CRC32();
+        long size = channel.size();
+        long position = 0;
+        while (size - position >= HEADER_SIZE) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            int checksum = header.getInt(4);
+            if (length < 0 || length > size - position - HEADER_SIZE) break;
+            if (length > body.capacity()) body = ByteBuffer.allocate(Math.max(length, body.capacity() * 2));
+            body.clear();
+            body.limit(length);
+            readFully(channel, body, position + HEADER_SIZE);
+            crc.reset();
+            crc.update(body.array(), 0, length);
+            if ((int) crc.getValue() != checksum) break;
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    // This method fills the buffer from the given position of the file.
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+    }
+
+    // This method makes the batch buffer big enough for one more record.
+    private void grow(int needed) {
+        int capacity = batch.capacity();
+        while (capacity - batch.position() < needed) capacity *= 2;
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        batch.flip();
+        bigger.put(batch);
+        batch = bigger;
+    }
+}
@@ -1,5 +1,6 @@
 package Library;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -11,62 +12,117 @@ public abstract class UserBase {
     protected String id;
     protected String name;
     protected String phoneNumber;
+    // This handle is stored in the items this user borrows.
+    protected final int handle;
     protected double penalty;
     protected List<Item> borrowedItems;
     protected Map<Item, LocalDate> borrowDates;
+    // This queue keeps the loans ordered by the day they become overdue.
+    protected PriorityQueue<Loan> dueLoans;
+
+    // This formatter is shared by all users for the dd/MM/yyyy dates.
+    protected static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // The UTF-8 bytes of the name, made the first time an encoder writes it.
+    private byte[] nameBytes;
+
+    // The loan columns this user writes its loans and penalty into, and its row there.
+    private LoanColumns columns;
+    private int columnsRow;
 
     // This constructor is used to create a new user with basic info.
     public UserBase(String id, String name, String phoneNumber) {
         this.id = id;
         this.name = name;
         this.phoneNumber = phoneNumber;
+        this.handle = UserHandles.intern(id);
         this.penalty = 0.0;
         this.borrowedItems = new ArrayList<>();
         this.borrowDates = new HashMap<>();
+        this.dueLoans = new PriorityQueue<>();
     }
 
-    // This method is used to get the name of the user.
+    // These methods are used to get the details of the user.
+    public String getId() { return id; }
     public String getName() { return name; }
+    public String getPhoneNumber() { return phoneNumber; }
+    public double getPenalty() { return penalty; }
+
+    // This method returns the name as UTF-8 bytes, which are kept for the next time.
+    byte[] nameBytes() {
+        byte[] bytes = nameBytes;
+        if (bytes == null) nameBytes = bytes = name.getBytes(StandardCharsets.UTF_8);
+        return bytes;
+    }
 
-    // These abstract methods must be defined in subclasses.
-    public abstract int getMaxItems();
-    public abstract int getOverdueLimit();
+    // This abstract method tells which rules of the loan policy apply to the user.
+    public abstract LoanPolicy.UserClass getUserClass();
+
+    // These methods return the limits of the user from the active loan policy.
+    public int getMaxItems() {
+        return LoanPolicy.active().maxItems(getUserClass());
+    }
+
+    public int getOverdueLimit() {
+        return LoanPolicy.active().overdueDays(getUserClass());
+    }
 
     // This method checks if the user can borrow another item.
     public boolean canBorrow() {
-        return penalty < 6.0 && borrowedItems.size() < getMaxItems();
+        LoanPolicy policy = LoanPolicy.active();
+        return penalty < policy.penaltyThreshold() && borrowedItems.size() < policy.maxItems(getUserClass());
     }
 
     // This method checks overdue items and applies penalty if needed.
+    // Only the loans at the head of the queue are looked at, so the cost depends on
+    // how many loans expired and not on how many items the user is holding.
     public List<String> checkOverdueItems(LocalDate currentDate) {
-        List<String> logs = new ArrayList<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        Iterator<Item> it = borrowedItems.iterator();
-        while (it.hasNext()) {
-            Item item = it.next();
-            LocalDate bDate = borrowDates.get(item);
-            long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(bDate, currentDate);
-            if (daysBetween >= getOverdueLimit()) {
-                item.returnItem(currentDate.format(formatter));
-                logs.add("Auto-return: User " + id + " auto-returned item " + item.getId() +
-                        " on " + currentDate.format(formatter) + " due to overdue, penalty applied");
-                it.remove();
-                borrowDates.remove(item);
-                addPenalty(2.0);
-            }
+        List<Item> returned = returnOverdueItems(currentDate);
+        if (returned.isEmpty()) return Collections.emptyList();
+        List<String> logs = new ArrayList<>(returned.size());
+        String date = currentDate.format(DATE_FORMAT);
+        for (Item item : returned) {
+            logs.add("Auto-return: User " + id + " auto-returned item " + item.getId() +
+                    " on " + date + " due to overdue, penalty applied");
         }
         return logs;
     }
 
+    // This method does the auto-returns of checkOverdueItems and gives the returned items,
+    // so that the library can hand them to the users holding them.
+    List<Item> returnOverdueItems(LocalDate currentDate) {
+        long today = currentDate.toEpochDay();
+        if (dueLoans.isEmpty() || dueLoans.peek().dueDay > today) return Collections.emptyList();
+        List<Item> returned = new ArrayList<>();
+        double overduePenalty = LoanPolicy.active().overduePenalty();
+        while (!dueLoans.isEmpty() && dueLoans.peek().dueDay <= today) {
+            Loan loan = dueLoans.poll();
+            if (columns != null) columns.removeLoan(loan);
+            Item item = loan.item;
+            item.returnItem((int) today);
+            returned.add(item);
+            borrowedItems.remove(item);
+            borrowDates.remove(item);
+            addPenalty(overduePenalty);
+        }
+        return returned;
+    }
+
     // This method is used to borrow an item and store its date.
+    // Item types that the loan policy refuses for this kind of user are never lent.
     public boolean borrowItem(Item item, LocalDate borrowDate) {
+        if (!LoanPolicy.active().allows(getUserClass(), item.getItemType())) return false;
         checkOverdueItems(borrowDate);
         if (!canBorrow()) return false;
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        boolean success = item.borrowItem(id, borrowDate.format(formatter));
+        return lend(item, borrowDate);
+    }
+
+    // This method lends the item and records the loan, without looking at penalties or limits.
+    // Callers that have already checked the user, such as the batch methods, use it directly.
+    boolean lend(Item item, LocalDate borrowDate) {
+        boolean success = item.borrowItem(handle, (int) borrowDate.toEpochDay());
         if (success) {
-            borrowedItems.add(item);
-            borrowDates.put(item, borrowDate);
+            addLoan(item, borrowDate);
             return true;
         }
         return false;
@@ -75,27 +131,89 @@ public abstract class UserBase {
     // This method is used to return a borrowed item.
     public boolean returnItem(Item item, LocalDate returnDate) {
         if (borrowedItems.contains(item)) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-            item.returnItem(returnDate.format(formatter));
+            item.returnItem((int) returnDate.toEpochDay());
             borrowedItems.remove(item);
             borrowDates.remove(item);
+            for (Iterator<Loan> loans = dueLoans.iterator(); loans.hasNext(); ) {
+                Loan loan = loans.next();
+                if (loan.item == item) {
+                    loans.remove();
+                    if (columns != null) columns.removeLoan(loan);
+                }
+            }
             return true;
         }
         return false;
     }
 
+    // This method puts back a loan read from a snapshot. The item keeps its own borrow info.
+    void restoreLoan(Item item, LocalDate borrowDate) {
+        addLoan(item, borrowDate);
+    }
+
+    // This method records a loan in the lists of the user and in the loan columns.
+    // The due day is fixed here, so a later change of the loan policy does not move it.
+    private void addLoan(Item item, LocalDate borrowDate) {
+        borrowedItems.add(item);
+        borrowDates.put(item, borrowDate);
+        Loan loan = new Loan(item, borrowDate.toEpochDay() + getOverdueLimit());
+        dueLoans.add(loan);
+        if (columns != null) columns.addLoan(columnsRow, loan, (int) borrowDate.toEpochDay());
+    }
+
+    // This method makes the user write into the columns from now on, starting with its current loans.
+    void attachColumns(LoanColumns columns, int row) {
+        this.columns = columns;
+        this.columnsRow = row;
+        for (Loan loan : dueLoans) columns.addLoan(row, loan, (int) borrowDates.get(loan.item).toEpochDay());
+    }
+
     // This method adds penalty to the user's account.
     public void addPenalty(double amount) {
         penalty += amount;
+        if (columns != null) columns.setPenalty(columnsRow, penalty);
     }
 
     // This method resets the penalty to 0.
     public void clearPenalty() {
         penalty = 0.0;
+        if (columns != null) columns.setPenalty(columnsRow, penalty);
     }
 
     // This method shows basic info about the user.
+    // It writes into the given builder, so the same builder can be reused for many users.
+    public void display(StringBuilder out) {
+        out.append(id).append(' ').append(name).append(' ').append(phoneNumber).append(" Penalty: ").append(penalty);
+    }
+
+    // This method returns the user info as a string.
     public String toString() {
-        return id + " " + name + " " + phoneNumber + " Penalty: " + penalty;
+        StringBuilder out = new StringBuilder(128);
+        display(out);
+        return out.toString();
+    }
+
+    // This method writes the first two lines of the user info, which subclasses share.
+    protected void displayHeader(StringBuilder out, String shownName) {
+        out.append("------ User Information for ").append(id).append(" ------\n");
+        out.append("Name: ").append(shownName).append(" Phone: ").append(phoneNumber).append('\n');
+    }
+
+    // This class is used to keep one loan and the epoch day it becomes overdue.
+    // The row is the place of the loan in the loan columns, or -1 when it has none.
+    protected static class Loan implements Comparable<Loan> {
+        final Item item;
+        final long dueDay;
+        int row = -1;
+
+        Loan(Item item, long dueDay) {
+            this.item = item;
+            this.dueDay = dueDay;
+        }
+
+        @Override
+        public int compareTo(Loan other) {
+            return Long.compare(dueDay, other.dueDay);
+        }
     }
 }
@@ -0,0 +1,39 @@
+package Library;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// This class is used to give every user ID a small int handle.
+// Items keep the handle of their borrower instead of the ID string,
+// and the ID is only looked up again when an item is displayed.
+public final class UserHandles {
+
+    // These fields are used to map IDs to handles and handles back to IDs.
+    private static final ConcurrentHashMap<String, Integer> handles = new ConcurrentHashMap<>();
+    private static volatile String[] ids = new String[64];
+    private static int count = 0;
+
+    private UserHandles() {
+    }
+
+    // This method returns the handle of the ID, giving it a new one the first time.
+    public static int intern(String id) {
+        Integer handle = handles.get(id);
+        if (handle != null) return handle;
+        synchronized (UserHandles.class) {
+            handle = handles.get(id);
+            if (handle != null) return handle;
+            String[] table = ids;
+            if (count == table.length) table = Arrays.copyOf(table, count * 2);
+            table[count] = id;
+            ids = table;
+            handles.put(id, count);
+            return count++;
+        }
+    }
+
+    // This method returns the ID that the handle was given for.
+    public static String idOf(int handle) {
+        return ids[handle];
+    }
+}
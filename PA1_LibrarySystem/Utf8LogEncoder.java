@@ -0,0 +1,164 @@
+package Library;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// This class is used to write log lines to a file as UTF-8 without making a string for every line.
+// The fixed circulation messages are copied from bytes that are encoded once: the message text
+// is kept in LogMessage, and the names and titles are kept by the users and items themselves.
+// Numbers are written digit by digit, so a borrow or return line does not allocate anything.
+// Other lines are encoded straight into the same direct buffer.
+public class Utf8LogEncoder implements LogSink {
+
+    // This is the size of the byte buffer in front of the channel.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // These fields are used to keep the open file, the byte buffer and the encoder for other lines.
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private final byte[] lineSeparator;
+    private final byte[] digits;
+    private boolean failed;
+
+    // This constructor opens (and empties) the output file for writing.
+    public Utf8LogEncoder(String filename) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+        this.digits = new byte[11];
+        this.failed = false;
+    }
+
+    // This method writes the line and a line separator into the buffer.
+    @Override
+    public void write(String line) {
+        write((CharSequence) line);
+    }
+
+    // This method encodes the characters into the buffer, emptying it to the file when it is full.
+    @Override
+    public void write(CharSequence line) {
+        if (failed) return;
+        try {
+            CharBuffer chars = CharBuffer.wrap(line);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else {
+                    break;
+                }
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+            put(lineSeparator);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // This method copies the bytes of the name, the message parts, the title and the number.
+    @Override
+    public void write(LogMessage message, UserBase user, Item item, int number) {
+        if (failed) return;
+        try {
+            put(user.nameBytes());
+            put(message.afterNameBytes);
+            if (message.hasTitle()) {
+                put(item.titleBytes());
+                put(message.afterTitleBytes);
+            }
+            if (message.hasNumber()) {
+                putNumber(number);
+                put(message.afterNumberBytes);
+            }
+            put(lineSeparator);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // This method pushes the buffered bytes to the channel.
+    @Override
+    public void flush() {
+        if (failed) return;
+        try {
+            drain();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // This method writes the remaining bytes and closes the file.
+    @Override
+    public void close() {
+        try {
+            if (!failed) drain();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // This method adds bytes to the buffer. Arrays larger than the buffer are written directly.
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            drain();
+            if (bytes.length > buffer.capacity()) {
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) channel.write(wrapped);
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    // This method writes the decimal digits of a number, from the last digit backwards into a scratch array.
+    private void putNumber(int number) throws IOException {
+        if (buffer.remaining() < digits.length) drain();
+        long value = number;
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    // This method empties the buffer into the channel.
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // The first error is reported once and later lines are dropped, like PrintWriter does.
+    private void fail(IOException e) {
+        failed = true;
+        e.printStackTrace();
+    }
+}
@@ -0,0 +1,143 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+// This benchmark runs generated self-checkout sessions, where one user borrows a batch of items
+// on one date and then returns half of them, in three ways: borrowAll and returnAll once per
+// session, borrow and returnItem once per item as the dispatch loop calls them, and a command
+// file with a line per item through processCommands. The date moves one day every hundred
+// sessions, so loans expire and are auto-returned. The log lines are dropped, the heap is
+// collected before each way, and all three ways must leave every item with the same borrower.
+// Arguments: [sessions] [rounds], 200000 5 by default.
+public class BatchCheckoutBenchmark {
+
+    private static final int ITEMS = 20000;
+    private static final int USERS = 5000;
+    private static final int[] BATCH_SIZES = {1, 2, 5, 10};
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // This sink drops the lines, so the log costs the same nothing for every way.
+    private static final LogSink DROP = new LogSink() {
+        @Override
+        public void write(String line) {
+        }
+
+        @Override
+        public void write(LogMessage message, UserBase user, Item item, int number) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        File dir = Files.createTempDirectory("checkout").toFile();
+        dir.deleteOnExit();
+        String items = TestSupport.items(dir, ITEMS);
+        String users = TestSupport.users(dir, USERS);
+
+        for (int round = 0; round < rounds; round++) {
+            StringBuilder row = new StringBuilder("round " + round + ": items per second");
+            for (int batch : BATCH_SIZES) {
+                Random random = new Random(batch);
+                String[] userIds = new String[sessions];
+                String[][] itemIds = new String[sessions][batch];
+                LocalDate[] dates = new LocalDate[sessions];
+                for (int s = 0; s < sessions; s++) {
+                    userIds[s] = TestSupport.userId(random.nextInt(USERS));
+                    for (int i = 0; i < batch; i++) itemIds[s][i] = TestSupport.itemId(random.nextInt(ITEMS));
+                    dates[s] = LocalDate.of(2024, 1, 1).plusDays(s / 100);
+                }
+                String commands = commandFile(dir, userIds, itemIds, dates);
+
+                LibrarySystem batched = library(items, users);
+                long start = System.nanoTime();
+                for (int s = 0; s < sessions; s++) {
+                    batched.borrowAll(userIds[s], itemIds[s], dates[s]);
+                    batched.returnAll(userIds[s], returned(itemIds[s]), dates[s]);
+                }
+                long batchNanos = System.nanoTime() - start;
+
+                LibrarySystem single = library(items, users);
+                start = System.nanoTime();
+                for (int s = 0; s < sessions; s++) {
+                    UserBase user = single.getUsers().get(userIds[s]);
+                    for (String id : itemIds[s]) single.borrow(user, single.getItems().get(id), dates[s], DROP);
+                    for (String id : returned(itemIds[s])) single.returnItem(user, single.getItems().get(id), dates[s], DROP);
+                }
+                long singleNanos = System.nanoTime() - start;
+
+                LibrarySystem lines = library(items, users);
+                start = System.nanoTime();
+                lines.processCommands(commands);
+                long lineNanos = System.nanoTime() - start;
+
+                check(borrowers(batched).equals(borrowers(single)), "borrowAll and borrow lent other items");
+                check(borrowers(batched).equals(borrowers(lines)), "borrowAll and processCommands lent other items");
+                long operations = (long) sessions * (batch + batch / 2);
+                row.append(String.format(" | batch %d: borrowAll %.0f, borrow %.0f, processCommands %.0f", batch,
+                        operations * 1e9 / batchNanos, operations * 1e9 / singleNanos, operations * 1e9 / lineNanos));
+            }
+            System.out.println(row);
+        }
+    }
+
+    // The first half of a batch is returned in the same session.
+    private static String[] returned(String[] itemIds) {
+        String[] ids = new String[itemIds.length / 2];
+        System.arraycopy(itemIds, 0, ids, 0, ids.length);
+        return ids;
+    }
+
+    private static LibrarySystem library(String items, String users) {
+        LibrarySystem system = new LibrarySystem();
+        system.loadItems(items);
+        system.loadUsers(users);
+        system.setLogSink(DROP);
+        System.gc();
+        return system;
+    }
+
+    // This method writes the sessions as borrow and return lines.
+    private static String commandFile(File dir, String[] userIds, String[][] itemIds, LocalDate[] dates) throws IOException {
+        File file = new File(dir, "sessions.txt");
+        file.deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int s = 0; s < userIds.length; s++) {
+                String date = dates[s].format(DATE_FORMAT);
+                for (String id : itemIds[s]) {
+                    out.write("borrow," + userIds[s] + "," + id + "," + date);
+                    out.newLine();
+                }
+                for (String id : returned(itemIds[s])) {
+                    out.write("return," + userIds[s] + "," + id);
+                    out.newLine();
+                }
+            }
+        }
+        return file.getPath();
+    }
+
+    // This method lists the borrower handle of every item, so two libraries can be compared.
+    private static String borrowers(LibrarySystem system) {
+        StringBuilder out = new StringBuilder();
+        for (Item item : system.getItems().values()) out.append(item.getBorrowedBy()).append(',');
+        return out.toString();
+    }
+}
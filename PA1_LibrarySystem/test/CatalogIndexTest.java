@@ -0,0 +1,108 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+// This test checks that CatalogIndex answers every query like a walk over the whole catalog,
+// while items are borrowed and returned after the index was built, also from several threads.
+// Categories are shared by magazines and DVDs, so the kind filter and the merge of kinds are covered.
+public class CatalogIndexTest {
+
+    private static final int ITEMS = 3000;
+    private static final int VALUES = 7;
+    private static final int THREADS = 4;
+
+    public static void main(String[] args) throws InterruptedException {
+        Random random = new Random(10);
+        TreeMap<String, Item> catalog = new TreeMap<>();
+        for (int i = 0; i < ITEMS; i++) {
+            String id = String.format(Locale.ROOT, "I%05d", random.nextInt(100000));
+            String a = "Value " + random.nextInt(VALUES);
+            String b = " value " + random.nextInt(VALUES) + " ";
+            switch (random.nextInt(3)) {
+                case 0: catalog.put(id, new BookItem(id, "T", a, b, "normal")); break;
+                case 1: catalog.put(id, new MagazineItem(id, "T", a, b, "normal")); break;
+                default: catalog.put(id, new DVDItem(id, "T", a, b, 90, "normal")); break;
+            }
+        }
+        List<Item> items = new ArrayList<>(catalog.values());
+        // Some items are lent before the index is made
+        for (int i = 0; i < items.size(); i += 3) items.get(i).borrowItem(1, 100);
+        CatalogIndex index = new CatalogIndex(catalog.values());
+        compare(index, catalog, "after build");
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 500; i++) flip(items.get(random.nextInt(items.size())));
+            compare(index, catalog, "round " + round);
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int first = t;
+            threads.add(new Thread(() -> {
+                Random own = new Random(first);
+                for (int i = 0; i < 200000; i++) {
+                    // Every thread has its own items, but their bits share words of the same postings
+                    int position = own.nextInt(items.size() / THREADS) * THREADS + first;
+                    flip(items.get(position));
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        compare(index, catalog, "after threads");
+        System.out.println("CatalogIndexTest passed");
+    }
+
+    private static void flip(Item item) {
+        if (item.isBorrowed()) item.returnItem(200);
+        else item.borrowItem(2, 200);
+    }
+
+    private static void compare(CatalogIndex index, Map<String, Item> catalog, String when) {
+        List<Class<? extends Item>> kinds = new ArrayList<>();
+        kinds.add(Item.class);
+        kinds.add(BookItem.class);
+        kinds.add(MagazineItem.class);
+        kinds.add(DVDItem.class);
+        for (CatalogIndex.Attribute attribute : CatalogIndex.Attribute.values()) {
+            for (int v = 0; v <= VALUES; v++) {
+                String value = "VALUE " + v;
+                int total = 0;
+                for (Class<? extends Item> kind : kinds) {
+                    for (boolean availableOnly : new boolean[] {false, true}) {
+                        List<Item> expected = new ArrayList<>();
+                        for (Item item : catalog.values()) {
+                            if (!kind.isInstance(item) || availableOnly && item.isBorrowed()) continue;
+                            String field = field(item, attribute);
+                            if (field != null && field.trim().equalsIgnoreCase(value)) expected.add(item);
+                        }
+                        List<Item> actual = index.find(attribute, value, kind, availableOnly);
+                        check(expected.equals(actual), when + ": " + attribute + "=" + value + " " + kind.getSimpleName()
+                                + (availableOnly ? " available" : "") + " found " + actual.size() + ", expected " + expected.size());
+                        if (kind == Item.class && !availableOnly) total = expected.size();
+                    }
+                }
+                check(index.count(attribute, value) == total, when + ": count of " + attribute + "=" + value);
+            }
+        }
+    }
+
+    private static String field(Item item, CatalogIndex.Attribute attribute) {
+        switch (attribute) {
+            case AUTHOR: return item instanceof BookItem ? ((BookItem) item).getAuthor() : null;
+            case GENRE: return item instanceof BookItem ? ((BookItem) item).getGenre() : null;
+            case PUBLISHER: return item instanceof MagazineItem ? ((MagazineItem) item).getPublisher() : null;
+            case DIRECTOR: return item instanceof DVDItem ? ((DVDItem) item).getDirector() : null;
+            default:
+                if (item instanceof MagazineItem) return ((MagazineItem) item).getCategory();
+                return item instanceof DVDItem ? ((DVDItem) item).getCategory() : null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// This benchmark times loading a generated catalog with loadItems and loadUsers, which read lines
+// and split them, against the memory-mapped scanner and the parallel loader. The scanner is also
+// timed alone, without the sorted map and the title index that every load of the library fills.
+// Only one catalog is kept at a time and the heap is collected before each load, so the loads
+// do not pay for each other's garbage. The first rounds warm up the JIT; every load must give
+// the same catalog as loadItems and loadUsers.
+// Arguments: [items] [users] [rounds], 1000000 300000 5 by default.
+public class CatalogLoaderBenchmark {
+
+    private interface Load {
+        void into(LibrarySystem system, String items, String users);
+    }
+
+    private static final String[] NAMES = {"split", "mapped", "parallel"};
+    private static final Load[] ITEM_LOADS = {
+            (system, items, users) -> system.loadItems(items),
+            (system, items, users) -> system.loadItemsMapped(items),
+            (system, items, users) -> system.loadItemsParallel(items)};
+    private static final Load[] USER_LOADS = {
+            (system, items, users) -> system.loadUsers(users),
+            (system, items, users) -> system.loadUsersMapped(users),
+            (system, items, users) -> system.loadUsersParallel(users)};
+
+    public static void main(String[] args) throws IOException {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 300000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        File dir = Files.createTempDirectory("loader").toFile();
+        dir.deleteOnExit();
+        String items = TestSupport.items(dir, itemCount);
+        String users = TestSupport.users(dir, userCount);
+        System.out.println(itemCount + " items (" + new File(items).length() / 1024 / 1024 + " MB), "
+                + userCount + " users (" + new File(users).length() / 1024 / 1024 + " MB)");
+
+        String lastItem = TestSupport.itemId(itemCount - 1);
+        String lastUser = TestSupport.userId(userCount - 1);
+        String expected = null;
+        for (int round = 0; round < rounds; round++) {
+            StringBuilder row = new StringBuilder("round " + round + ":");
+            for (int way = 0; way < NAMES.length; way++) {
+                LibrarySystem system = new LibrarySystem();
+                System.gc();
+                long start = System.nanoTime();
+                ITEM_LOADS[way].into(system, items, users);
+                long loadedItems = System.nanoTime();
+                USER_LOADS[way].into(system, items, users);
+                long loadedUsers = System.nanoTime();
+
+                check(system.getItems().size() == itemCount && system.getUsers().size() == userCount,
+                        NAMES[way] + " loaded " + system.getItems().size() + " items and " + system.getUsers().size() + " users");
+                String seen = system.getItems().get(lastItem) + " / " + system.getUsers().get(lastUser);
+                if (expected == null) expected = seen;
+                check(seen.equals(expected), NAMES[way] + " read " + seen + ", loadItems read " + expected);
+                row.append(String.format(" %s items %d ms users %d ms,", NAMES[way],
+                        (loadedItems - start) / 1000000, (loadedUsers - loadedItems) / 1000000));
+            }
+
+            System.gc();
+            long start = System.nanoTime();
+            int scanned = MappedCatalogLoader.readItems(items).size() + MappedCatalogLoader.readUsers(users).size();
+            row.append(" scanner alone ").append((System.nanoTime() - start) / 1000000).append(" ms");
+            check(scanned == itemCount + userCount, "the scanner read " + scanned + " lines");
+            System.out.println(row);
+        }
+    }
+}
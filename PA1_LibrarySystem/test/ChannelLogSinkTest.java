@@ -0,0 +1,81 @@
+package Library;
+
+import static Library.TestSupport.check;
+import static Library.TestSupport.write;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+// This test checks that ChannelLogSink writes the same bytes as PrintWriter when a line holds
+// characters the charset cannot encode: they become '?' and the lines after them are still written.
+// The second part runs a library with such titles under the default charset, so running it with
+// -Dfile.encoding=US-ASCII checks the file Main writes against writeOutput on an ASCII system.
+public class ChannelLogSinkTest {
+
+    private static final List<String> LINES = Arrays.asList(
+            "Name: Çağrı Öztürk", "Title: naïve café ☃", "Broken: \ud800 half", "Plain: after");
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("sink").toFile();
+        for (Charset charset : new Charset[] {StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1,
+                StandardCharsets.UTF_8}) {
+            File expected = new File(dir, "expected-" + charset.name());
+            File actual = new File(dir, "actual-" + charset.name());
+            expected.deleteOnExit();
+            actual.deleteOnExit();
+            try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(expected), charset))) {
+                for (String line : LINES) {
+                    pw.println(line);
+                    pw.println(line);
+                }
+            }
+            try (ChannelLogSink sink = new ChannelLogSink(actual.getPath(), 0, charset)) {
+                for (String line : LINES) {
+                    sink.write(line);
+                    sink.write(new StringBuilder(line));
+                }
+            }
+            // Every line is written once as a String and once as a StringBuilder
+            check(Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath())),
+                    charset + ": ChannelLogSink wrote other bytes than PrintWriter");
+        }
+
+        String items = write(dir, "items.txt", Arrays.asList(
+                "B,B1,Çalıkuşu,Reşat Nuri,Novel,normal", "M,M1,Göz ☃,Yayın,Science,normal",
+                "D,D1,Plain Title,Director,Drama,120 min,normal"));
+        String users = write(dir, "users.txt", Arrays.asList("S,Şule Ağaoğlu,U1,555,Dep,Fac,2"));
+        String commands = write(dir, "commands.txt", Arrays.asList(
+                "borrow,U1,B1,01/03/2025", "displayItems", "displayUsers", "borrow,U1,D1,02/03/2025", "displayItems"));
+
+        LibrarySystem kept = new LibrarySystem();
+        kept.loadItems(items);
+        kept.loadUsers(users);
+        kept.processCommands(commands);
+        File expected = new File(dir, "writeOutput.txt");
+        expected.deleteOnExit();
+        kept.writeOutput(expected.getPath());
+
+        LibrarySystem streamed = new LibrarySystem();
+        streamed.loadItems(items);
+        streamed.loadUsers(users);
+        File actual = new File(dir, "streamed.txt");
+        actual.deleteOnExit();
+        try (ChannelLogSink sink = new ChannelLogSink(actual.getPath())) {
+            streamed.setLogSink(sink);
+            streamed.processCommands(commands);
+        }
+        check(Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath())),
+                Charset.defaultCharset() + ": streamed output differs from writeOutput");
+        check(new String(Files.readAllBytes(actual.toPath()), Charset.defaultCharset()).contains("Plain Title"),
+                "lines after the non-ASCII titles are missing");
+        System.out.println("ChannelLogSinkTest passed");
+    }
+}
@@ -0,0 +1,144 @@
+package Library;
+
+import static Library.TestSupport.check;
+import static Library.TestSupport.write;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// This test runs several circulation desks at the same time many times over and checks the result.
+// When the desks serve different users and items, the interleaved run must end in exactly the
+// same state as running the desks one after another. When they share items, no item may be
+// lent to two users and every loan must be known by both its user and its item.
+public class CirculationDesksTest {
+
+    private static final int DESKS = 4;
+    private static final int USERS_PER_DESK = 6;
+    private static final int ITEMS_PER_DESK = 24;
+    private static final int COMMANDS_PER_DESK = 3000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        File dir = Files.createTempDirectory("desks").toFile();
+        String items = write(dir, "items.txt", itemLines());
+        String users = write(dir, "users.txt", userLines());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Random random = new Random(round);
+            String[] separate = new String[DESKS];
+            String[] shared = new String[DESKS];
+            for (int d = 0; d < DESKS; d++) {
+                separate[d] = write(dir, "separate" + d + ".txt", commands(random, d, d));
+                shared[d] = write(dir, "shared" + d + ".txt", commands(random, d, 0));
+            }
+
+            LibrarySystem serial = load(items, users);
+            CirculationDesks serialDesks = new CirculationDesks(serial, 8);
+            for (String file : separate) serialDesks.run(new String[]{file}, sinks(1));
+            LibrarySystem parallel = load(items, users);
+            new CirculationDesks(parallel, 8).run(separate, sinks(DESKS));
+            String expected = state(serial);
+            String actual = state(parallel);
+            check(expected.equals(actual), "round " + round + ": interleaved desks ended in another state\n"
+                    + expected + "\n---\n" + actual);
+
+            LibrarySystem contended = load(items, users);
+            new CirculationDesks(contended, 8).run(shared, sinks(DESKS));
+            checkLoans(contended);
+        }
+        System.out.println("CirculationDesksTest passed");
+    }
+
+    // Desk d works with its own users; its items are those of the given item group.
+    private static List<String> commands(Random random, int desk, int itemGroup) {
+        List<String> lines = new ArrayList<>();
+        int day = 1;
+        for (int i = 0; i < COMMANDS_PER_DESK; i++) {
+            String user = userId(desk, random.nextInt(USERS_PER_DESK));
+            String item = itemId(itemGroup, random.nextInt(ITEMS_PER_DESK));
+            int kind = random.nextInt(10);
+            if (kind < 5) {
+                if (random.nextInt(4) == 0) day++;
+                lines.add(String.format("borrow,%s,%s,%02d/%02d/2025", user, item, (day - 1) % 28 + 1, (day - 1) / 28 % 12 + 1));
+            } else if (kind < 9) {
+                lines.add("return," + user + "," + item);
+            } else {
+                lines.add("pay," + user);
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> itemLines() {
+        List<String> lines = new ArrayList<>();
+        for (int d = 0; d < DESKS; d++) {
+            for (int i = 0; i < ITEMS_PER_DESK; i++) {
+                lines.add("B," + itemId(d, i) + ",Title " + i + ",Author,Genre,normal");
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> userLines() {
+        List<String> lines = new ArrayList<>();
+        for (int d = 0; d < DESKS; d++) {
+            for (int u = 0; u < USERS_PER_DESK; u++) {
+                lines.add("S,Student " + u + "," + userId(d, u) + ",555" + u + ",Dep,Fac,2");
+            }
+        }
+        return lines;
+    }
+
+    private static String itemId(int group, int i) {
+        return "B" + group + "-" + i;
+    }
+
+    private static String userId(int desk, int u) {
+        return "U" + desk + "-" + u;
+    }
+
+    // The loans of every user in order, their penalties, and the borrower of every item.
+    private static String state(LibrarySystem system) {
+        StringBuilder out = new StringBuilder();
+        for (UserBase user : system.getUsers().values()) {
+            out.append(user.getId()).append(' ').append(user.getPenalty());
+            for (Item item : user.borrowedItems) out.append(' ').append(item.getId());
+            out.append('\n');
+        }
+        for (Item item : system.getItems().values()) {
+            out.append(item.getId()).append(' ').append(item.isBorrowed() ? UserHandles.idOf(item.getBorrowedBy()) : "-").append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void checkLoans(LibrarySystem system) {
+        List<Item> lent = new ArrayList<>();
+        for (UserBase user : system.getUsers().values()) {
+            for (Item item : user.borrowedItems) {
+                check(!lent.contains(item), "item " + item.getId() + " is lent twice");
+                check(item.isBorrowed() && item.getBorrowedBy() == UserHandles.intern(user.getId()),
+                        "item " + item.getId() + " does not know it is lent to " + user.getId());
+                lent.add(item);
+            }
+        }
+        for (Item item : system.getItems().values()) {
+            check(!item.isBorrowed() || lent.contains(item), "item " + item.getId() + " is borrowed by nobody");
+        }
+    }
+
+    private static LibrarySystem load(String items, String users) {
+        LibrarySystem system = new LibrarySystem();
+        system.loadItems(items);
+        system.loadUsers(users);
+        return system;
+    }
+
+    private static LogSink[] sinks(int count) {
+        LogSink[] sinks = new LogSink[count];
+        for (int i = 0; i < count; i++) sinks[i] = new ListLogSink(new ArrayList<>());
+        return sinks;
+    }
+}
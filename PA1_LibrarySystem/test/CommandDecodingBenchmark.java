@@ -0,0 +1,140 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+// This benchmark measures how many command lines per second are decoded from a generated file.
+// CommandDecoder is compared with the decoding that processCommands did before, which split
+// every line, trimmed and lower-cased the command name, switched on it and parsed every borrow
+// date again. Both decode the same lines into the same Command records while the file is read,
+// and reading the file alone is timed too, so the cost of the decoding can be told apart.
+// Then the whole file runs through processCommands into a log file, which includes the commands.
+// Arguments: [commands] [rounds], 10000000 3 by default.
+public class CommandDecodingBenchmark {
+
+    private interface Decoder {
+        boolean decode(String line, Command into);
+    }
+
+    // This class decodes a line the way processCommands did before CommandDecoder.
+    private static final class SplitDecoder implements Decoder {
+        private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+        @Override
+        public boolean decode(String line, Command into) {
+            String[] parts = line.split(",", -1);
+            String command = parts[0].trim().toLowerCase();
+            into.userId = null;
+            into.itemId = null;
+            into.date = null;
+            switch (command) {
+                case "borrow":
+                    if (parts.length < 4) return false;
+                    into.opcode = Command.BORROW;
+                    into.userId = parts[1].trim();
+                    into.itemId = parts[2].trim();
+                    into.date = LocalDate.parse(parts[3].trim(), formatter);
+                    return true;
+                case "return":
+                    if (parts.length < 3) return false;
+                    into.opcode = Command.RETURN;
+                    into.userId = parts[1].trim();
+                    into.itemId = parts[2].trim();
+                    return true;
+                case "pay":
+                    if (parts.length < 2) return false;
+                    into.opcode = Command.PAY;
+                    into.userId = parts[1].trim();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static final int ITEMS = 200000;
+    private static final int USERS = 50000;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File dir = Files.createTempDirectory("decoding").toFile();
+        dir.deleteOnExit();
+        String items = TestSupport.items(dir, ITEMS);
+        String users = TestSupport.users(dir, USERS);
+        String commands = TestSupport.commands(dir, count, ITEMS, USERS);
+        File log = new File(dir, "log.txt");
+        log.deleteOnExit();
+        System.out.println(count + " commands (" + new File(commands).length() / 1024 / 1024 + " MB)");
+
+        CommandDecoder compiled = new CommandDecoder();
+        Decoder decoder = compiled::decode;
+        for (int round = 0; round < rounds; round++) {
+            long read = run(commands, null);
+            long decoded = run(commands, decoder);
+            long split = run(commands, new SplitDecoder());
+            check(checksum(commands, decoder) == checksum(commands, new SplitDecoder()),
+                    "CommandDecoder and the split decoding give other records");
+
+            LibrarySystem system = new LibrarySystem();
+            system.loadItems(items);
+            system.loadUsers(users);
+            long start = System.nanoTime();
+            try (ChannelLogSink sink = new ChannelLogSink(log.getPath())) {
+                system.setLogSink(sink);
+                system.processCommands(commands);
+            }
+            long all = System.nanoTime() - start;
+
+            System.out.printf("round %d: reading %.0f lines/s, CommandDecoder %.0f lines/s, split decoding %.0f lines/s,"
+                            + " processCommands %.0f commands/s%n",
+                    round, perSecond(count, read), perSecond(count, decoded), perSecond(count, split), perSecond(count, all));
+        }
+    }
+
+    // This method reads the file and decodes every line, if a decoder is given, and returns the nanoseconds.
+    private static long run(String commands, Decoder decoder) throws IOException {
+        Command command = new Command();
+        int lines = 0;
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new FileReader(commands))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (decoder == null || decoder.decode(line, command)) lines++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        check(lines > 0, "no line was decoded");
+        return nanos;
+    }
+
+    // This method adds up the records of the first lines, so the two decoders can be compared.
+    private static long checksum(String commands, Decoder decoder) throws IOException {
+        Command command = new Command();
+        long sum = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(commands))) {
+            String line;
+            for (int i = 0; i < 100000 && (line = reader.readLine()) != null; i++) {
+                if (!decoder.decode(line.trim(), command)) continue;
+                sum = sum * 31 + command.opcode;
+                sum = sum * 31 + command.userId.hashCode();
+                if (command.itemId != null) sum = sum * 31 + command.itemId.hashCode();
+                if (command.date != null) sum = sum * 31 + command.date.toEpochDay();
+            }
+        }
+        return sum;
+    }
+
+    private static double perSecond(int count, long nanos) {
+        return count * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,115 @@
+package Library;
+
+import static Library.TestSupport.check;
+import static Library.TestSupport.write;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// This test checks that holds are served first come first served: an item that comes back
+// through an auto-return goes to the first holder, a user who is not first in line cannot take
+// an item from the shelf past the holders, and HoldQueue keeps its order and members right.
+public class HoldsTest {
+
+    public static void main(String[] args) throws IOException {
+        checkQueue();
+
+        File dir = Files.createTempDirectory("holds").toFile();
+        String items = write(dir, "items.txt", Arrays.asList("B,B1,One,A,G,normal", "B,B2,Two,A,G,normal"));
+        String users = write(dir, "users.txt", Arrays.asList(
+                "G,Guest,G1,1,Writer", "S,First,S1,2,Dep,Fac,2", "S,Second,S2,3,Dep,Fac,2", "S,Third,S3,4,Dep,Fac,2"));
+        LibrarySystem system = new LibrarySystem();
+        system.loadItems(items);
+        system.loadUsers(users);
+        system.setMaxHolds(3);
+        List<String> log = new ArrayList<>();
+        LogSink out = new ListLogSink(log);
+        Item one = system.getItems().get("B1");
+
+        borrow(system, "G1", "B1", LocalDate.of(2025, 3, 1), out);
+        borrow(system, "S1", "B1", LocalDate.of(2025, 3, 2), out);
+        borrow(system, "S2", "B1", LocalDate.of(2025, 3, 3), out);
+        check(one.getHolds().size() == 2, "two holds must wait for B1");
+
+        // The guest's loan expired on 08/03; it is auto-returned when the guest comes back
+        log.clear();
+        borrow(system, "G1", "B2", LocalDate.of(2025, 3, 10), out);
+        check(one.getBorrowedBy() == handle(system, "S1"), "the auto-returned item must go to the first holder, log " + log);
+        check(log.size() == 2 && log.get(0).contains(" received held item ") && log.get(1).contains(" successfully borrowed! "),
+                "the hold must be filled before the guest's own borrow, log " + log);
+
+        // With holds off the return leaves the item on the shelf while S2 still waits
+        system.setMaxHolds(0);
+        system.returnItem(user(system, "S1"), one, LocalDate.of(2025, 3, 11), out);
+        system.setMaxHolds(3);
+        check(!one.isBorrowed() && one.getHolds().peek() == handle(system, "S2"), "S2 must be waiting for B1 on the shelf");
+        log.clear();
+        borrow(system, "S3", "B1", LocalDate.of(2025, 3, 12), out);
+        check(one.getBorrowedBy() == handle(system, "S2"), "S3 must not take B1 past S2, log " + log);
+        check(log.get(0).contains(" received held item ") && log.get(1).contains(" is not available")
+                && log.get(2).contains(" placed a hold on "), "S2 must get B1 and S3 must be queued, log " + log);
+
+        // The first user in line may take the item from the shelf, and their hold is used up
+        system.setMaxHolds(0);
+        system.returnItem(user(system, "S2"), one, LocalDate.of(2025, 3, 13), out);
+        system.setMaxHolds(3);
+        borrow(system, "S3", "B1", LocalDate.of(2025, 3, 14), out);
+        check(one.getBorrowedBy() == handle(system, "S3") && one.getHolds().size() == 0,
+                "S3 was first in line and must get B1 without a hold left");
+
+        // The batch path keeps the same order
+        system.setMaxHolds(0);
+        system.returnItem(user(system, "S3"), one, LocalDate.of(2025, 3, 15), out);
+        system.setMaxHolds(3);
+        one.getHolds().offer(handle(system, "S1"));
+        int[] status = system.borrowAll("S2", new String[] {"B1"}, LocalDate.of(2025, 3, 16));
+        check(status[0] == LoanStatus.NOT_AVAILABLE && one.getBorrowedBy() == handle(system, "S1"),
+                "borrowAll must hand B1 to S1 before S2");
+        System.out.println("HoldsTest passed");
+    }
+
+    // This method runs random offers and polls against an ArrayDeque, with contains after each step.
+    private static void checkQueue() {
+        Random random = new Random(17);
+        for (int limit : new int[] {1, 3, 4, 100}) {
+            HoldQueue queue = new HoldQueue(limit);
+            ArrayDeque<Integer> expected = new ArrayDeque<>();
+            for (int step = 0; step < 20000; step++) {
+                if (random.nextInt(3) != 0) {
+                    int handle = random.nextInt(3 * limit + 5);
+                    if (expected.contains(handle)) continue;
+                    boolean offered = queue.offer(handle);
+                    check(offered == expected.size() < limit, "offer at size " + expected.size() + " of " + limit);
+                    if (offered) expected.add(handle);
+                } else {
+                    Integer first = expected.poll();
+                    check(queue.poll() == (first == null ? Item.NO_BORROWER : first), "poll out of order");
+                }
+                check(queue.size() == expected.size(), "size");
+                check(queue.peek() == (expected.isEmpty() ? Item.NO_BORROWER : expected.peek()), "peek");
+                for (int handle = 0; handle < 3 * limit + 5; handle++) {
+                    check(queue.contains(handle) == expected.contains(handle), "contains " + handle);
+                }
+            }
+        }
+    }
+
+    private static void borrow(LibrarySystem system, String userId, String itemId, LocalDate date, LogSink out) {
+        system.borrow(user(system, userId), system.getItems().get(itemId), date, out);
+    }
+
+    private static UserBase user(LibrarySystem system, String id) {
+        return system.getUsers().get(id);
+    }
+
+    private static int handle(LibrarySystem system, String id) {
+        return user(system, id).handle;
+    }
+}
@@ -0,0 +1,163 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+// This benchmark compares the compact items with a copy of the items as they were before,
+// which kept the type, the borrow date and the borrower as strings. The borrow path of the
+// old model compared the type with equalsIgnoreCase for the user and the item, and formatted
+// the date with a new formatter on every borrow and return, as UserBase did. For both models it
+// times a borrow and a return of every item, counts the bytes they allocate, and measures the
+// heap that the items take when all of them are borrowed. The ID and title strings are shared
+// by both models, so only the items themselves and their borrow state are counted.
+// Arguments: [items] [rounds], 1000000 5 by default.
+public class ItemModelBenchmark {
+
+    // This class is the item of the old model, with the borrow checks of the old users.
+    private static final class LegacyItem {
+        private final String id;
+        private final String title;
+        private final String type;
+        // The author, publisher or director, the genre or category, and the runtime of a DVD.
+        private final String creator;
+        private final String category;
+        private final int runtime;
+        private final boolean book;
+        private boolean isBorrowed;
+        private String borrowedDate;
+        private String borrowedBy;
+
+        LegacyItem(String id, String title, String creator, String category, int runtime, String type, boolean book) {
+            this.id = id;
+            this.title = title;
+            this.type = type;
+            this.creator = creator;
+            this.category = category;
+            this.runtime = runtime;
+            this.book = book;
+            this.borrowedDate = "";
+            this.borrowedBy = "";
+        }
+
+        // This method is the old borrow of a guest: the user checks and then the item checks.
+        boolean borrow(String userId, LocalDate day) {
+            if (type.equalsIgnoreCase("rare") || type.equalsIgnoreCase("limited")) return false;
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            String date = day.format(formatter);
+            // Only books turned reference items away
+            if ((book && type.equalsIgnoreCase("reference")) || isBorrowed) return false;
+            isBorrowed = true;
+            borrowedDate = date;
+            borrowedBy = userId;
+            return true;
+        }
+
+        void giveBack(LocalDate day) {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+            day.format(formatter);
+            isBorrowed = false;
+            borrowedDate = "";
+            borrowedBy = "";
+        }
+    }
+
+    private static final String[] TYPES = {"normal", "normal", "normal", "normal", "normal", "normal", "normal",
+            "Reference", "rare", "limited"};
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String[] ids = new String[count];
+        String[] titles = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = TestSupport.itemId(i);
+            titles[i] = "Title " + i;
+        }
+        String userId = TestSupport.userId(0);
+        int borrower = UserHandles.intern(userId);
+
+        for (int round = 0; round < rounds; round++) {
+            long heap = usedHeap();
+            Item[] items = new Item[count];
+            for (int i = 0; i < count; i++) items[i] = compact(i, ids[i], titles[i]);
+            long start = System.nanoTime();
+            long bytes = TestSupport.allocatedBytes();
+            int lent = 0;
+            int day = (int) DAY.toEpochDay();
+            for (Item item : items) {
+                ItemType type = item.getItemType();
+                if (type == ItemType.RARE || type == ItemType.LIMITED) continue;
+                if (item.borrowItem(borrower, day)) lent++;
+            }
+            long compactBorrow = System.nanoTime() - start;
+            long compactBytes = TestSupport.allocatedBytes() - bytes;
+            long compactHeap = usedHeap() - heap;
+            start = System.nanoTime();
+            bytes = TestSupport.allocatedBytes();
+            for (Item item : items) {
+                if (item.isBorrowed()) item.returnItem(day);
+            }
+            long compactReturn = System.nanoTime() - start;
+            compactBytes += TestSupport.allocatedBytes() - bytes;
+            items = null;
+
+            heap = usedHeap();
+            LegacyItem[] legacy = new LegacyItem[count];
+            for (int i = 0; i < count; i++) legacy[i] = legacy(i, ids[i], titles[i]);
+            start = System.nanoTime();
+            bytes = TestSupport.allocatedBytes();
+            int legacyLent = 0;
+            for (LegacyItem item : legacy) {
+                if (item.borrow(userId, DAY)) legacyLent++;
+            }
+            long legacyBorrow = System.nanoTime() - start;
+            long legacyBytes = TestSupport.allocatedBytes() - bytes;
+            long legacyHeap = usedHeap() - heap;
+            start = System.nanoTime();
+            bytes = TestSupport.allocatedBytes();
+            for (LegacyItem item : legacy) {
+                if (item.isBorrowed) item.giveBack(DAY);
+            }
+            long legacyReturn = System.nanoTime() - start;
+            legacyBytes += TestSupport.allocatedBytes() - bytes;
+            check(!legacy[0].isBorrowed && legacy[count - 1].borrowedBy.isEmpty(), "the old items were not returned");
+            legacy = null;
+
+            check(lent == legacyLent, "the compact items lent " + lent + " and the old ones " + legacyLent);
+            System.out.printf("round %d: compact borrow %d ms return %d ms, %d bytes allocated, %d heap bytes per borrowed item;"
+                            + " old borrow %d ms return %d ms, %d bytes allocated, %d heap bytes per borrowed item%n",
+                    round, compactBorrow / 1000000, compactReturn / 1000000, compactBytes, compactHeap / count,
+                    legacyBorrow / 1000000, legacyReturn / 1000000, legacyBytes, legacyHeap / count);
+        }
+    }
+
+    // This method makes a book, a magazine or a DVD in turn, with the types the old items get.
+    private static Item compact(int i, String id, String title) {
+        String type = TYPES[i % TYPES.length];
+        switch (i % 3) {
+            case 0: return new BookItem(id, title, "Author", "Genre", type);
+            case 1: return new MagazineItem(id, title, "Publisher", "Category", type);
+            default: return new DVDItem(id, title, "Director", "Category", 90, type);
+        }
+    }
+
+    // This method makes the old item with the same details as the compact one.
+    private static LegacyItem legacy(int i, String id, String title) {
+        String type = TYPES[i % TYPES.length];
+        switch (i % 3) {
+            case 0: return new LegacyItem(id, title, "Author", "Genre", 0, type, true);
+            case 1: return new LegacyItem(id, title, "Publisher", "Category", 0, type, false);
+            default: return new LegacyItem(id, title, "Director", "Category", 90, type, false);
+        }
+    }
+
+    // This method collects the heap and returns how much of it is in use.
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
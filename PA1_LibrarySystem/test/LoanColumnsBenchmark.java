@@ -0,0 +1,143 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// This benchmark times the LoanColumns queries against the same questions answered by walking
+// the users and their loans, as a report would do without the columns. The users get their
+// loans through restoreLoan, so the borrow limits do not stop them, with borrow days spread over
+// the two months before today; every answer of the columns must equal the one of the walk.
+// The loans need about 250 bytes each, so 10 million of them need a heap of about 4 GB:
+//   java -Xmx4500m -cp out Library.LoanColumnsBenchmark
+// Arguments: [loans] [users] [rounds], 10000000 200000 5 by default.
+public class LoanColumnsBenchmark {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 1);
+    private static final int BORROW_DAYS = 60;
+
+    public static void main(String[] args) {
+        int loanCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random random = new Random(18);
+        List<UserBase> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            String id = TestSupport.userId(i);
+            switch (i % 3) {
+                case 0: users.add(new StudentUser(id, "Student", "5550000", "Dept", "Faculty " + i % 7, 2)); break;
+                case 1: users.add(new AcademicStaff(id, "Staff", "5550000", "Dept", "Faculty " + i % 7, "Dr.")); break;
+                default: users.add(new Guest(id, "Guest", "5550000", "Writer")); break;
+            }
+            if (i % 4 == 0) users.get(i).addPenalty(random.nextInt(8) * 0.5);
+        }
+        LocalDate[] days = new LocalDate[BORROW_DAYS];
+        for (int d = 0; d < BORROW_DAYS; d++) days[d] = TODAY.minusDays(BORROW_DAYS - d);
+        for (int i = 0; i < loanCount; i++) {
+            UserBase user = users.get(random.nextInt(userCount));
+            LocalDate day = days[random.nextInt(BORROW_DAYS)];
+            Item item = new BookItem(TestSupport.itemId(i), "Title", "Author", "Genre", "normal");
+            item.borrowItem(user.handle, (int) day.toEpochDay());
+            user.restoreLoan(item, day);
+        }
+        long start = System.nanoTime();
+        LoanColumns columns = new LoanColumns(users);
+        System.out.printf("%d loans of %d users, columns made in %d ms%n",
+                loanCount, userCount, (System.nanoTime() - start) / 1000000);
+
+        LocalDate since = TODAY.minusDays(7);
+        for (int round = 0; round < rounds; round++) {
+            StringBuilder row = new StringBuilder("round " + round + " (columns / walk ms):");
+
+            long t0 = System.nanoTime();
+            List<String> blocked = columns.usersWithPenaltyAtLeast(2.0);
+            long t1 = System.nanoTime();
+            List<String> blockedWalk = new ArrayList<>();
+            for (UserBase user : users) if (user.getPenalty() >= 2.0) blockedWalk.add(user.getId());
+            long t2 = System.nanoTime();
+            check(blocked.equals(blockedWalk), "users with penalty");
+            time(row, "penalty", t0, t1, t2);
+
+            t0 = System.nanoTime();
+            double total = columns.totalPenalty();
+            t1 = System.nanoTime();
+            double totalWalk = 0;
+            for (UserBase user : users) totalWalk += user.getPenalty();
+            t2 = System.nanoTime();
+            check(Math.abs(total - totalWalk) < 1e-6, "total penalty " + total + " and " + totalWalk);
+            time(row, "total", t0, t1, t2);
+
+            t0 = System.nanoTime();
+            long overdue = columns.countOverdue(TODAY, 3);
+            t1 = System.nanoTime();
+            long limit = TODAY.toEpochDay() - 3;
+            long overdueWalk = 0;
+            for (UserBase user : users) {
+                for (UserBase.Loan loan : user.dueLoans) if (loan.dueDay <= limit) overdueWalk++;
+            }
+            t2 = System.nanoTime();
+            check(overdue == overdueWalk, "overdue " + overdue + " and " + overdueWalk);
+            time(row, "countOverdue", t0, t1, t2);
+
+            t0 = System.nanoTime();
+            long recent = columns.countBorrowedSince(since);
+            t1 = System.nanoTime();
+            long recentWalk = 0;
+            for (UserBase user : users) {
+                for (LocalDate day : user.borrowDates.values()) if (!day.isBefore(since)) recentWalk++;
+            }
+            t2 = System.nanoTime();
+            check(recent == recentWalk, "borrowed since " + recent + " and " + recentWalk);
+            time(row, "countBorrowedSince", t0, t1, t2);
+
+            t0 = System.nanoTime();
+            List<String> items = columns.overdueItems(TODAY);
+            t1 = System.nanoTime();
+            List<String> itemsWalk = new ArrayList<>();
+            long today = TODAY.toEpochDay();
+            for (UserBase user : users) {
+                for (UserBase.Loan loan : user.dueLoans) if (loan.dueDay <= today) itemsWalk.add(loan.item.getId());
+            }
+            Collections.sort(itemsWalk);
+            t2 = System.nanoTime();
+            check(items.equals(itemsWalk), "overdue items");
+            time(row, "overdueItems", t0, t1, t2);
+
+            t0 = System.nanoTime();
+            Map<String, Double> faculties = columns.penaltyByFaculty();
+            t1 = System.nanoTime();
+            Map<String, Double> facultiesWalk = new LinkedHashMap<>();
+            for (UserBase user : users) {
+                String faculty = user instanceof StudentUser ? ((StudentUser) user).getFaculty()
+                        : user instanceof AcademicStaff ? ((AcademicStaff) user).getFaculty() : null;
+                if (faculty != null) facultiesWalk.merge(faculty, user.getPenalty(), Double::sum);
+            }
+            t2 = System.nanoTime();
+            check(faculties.keySet().equals(facultiesWalk.keySet()), "faculties");
+            time(row, "penaltyByFaculty", t0, t1, t2);
+
+            t0 = System.nanoTime();
+            int[] perUser = columns.loansPerUser();
+            t1 = System.nanoTime();
+            int[] perUserWalk = new int[userCount];
+            for (int i = 0; i < userCount; i++) perUserWalk[i] = users.get(i).borrowedItems.size();
+            t2 = System.nanoTime();
+            check(Arrays.equals(perUser, perUserWalk), "loans per user");
+            time(row, "loansPerUser", t0, t1, t2);
+
+            System.out.println(row);
+        }
+    }
+
+    private static void time(StringBuilder row, String query, long start, long columns, long walk) {
+        row.append(String.format(" %s %d / %d,", query, (columns - start) / 1000000, (walk - columns) / 1000000));
+    }
+}
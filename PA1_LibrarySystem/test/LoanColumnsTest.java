@@ -0,0 +1,110 @@
+package Library;
+
+import static Library.TestSupport.check;
+import static Library.TestSupport.write;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// This test checks that LoanColumns follows the library while commands run: the columns are
+// made before any loan, and after the loans, a return, a payment and the auto-returns of every
+// day around the due days they must agree with the users. The loan policy is changed after the
+// loans are made, so the columns must keep the due day the loan got and not work it out again.
+public class LoanColumnsTest {
+
+    private static final LocalDate FIRST_BORROW = LocalDate.of(2025, 3, 1);
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("columns").toFile();
+        String items = write(dir, "items.txt", Arrays.asList(
+                "B,B1,One,A,G,normal", "B,B2,Two,A,G,normal", "B,B3,Three,A,G,normal",
+                "B,B4,Four,A,G,normal", "B,B5,Five,A,G,normal", "B,B6,Six,A,G,normal", "B,B7,Seven,A,G,normal"));
+        String users = write(dir, "users.txt", Arrays.asList(
+                "S,Student,U1,1,Dep,Fac1,2", "A,Staff,U2,2,Dep,Fac2,Dr.", "G,Guest,U3,3,Writer"));
+        // The loans start on different days, so their due days are spread out
+        String commands = write(dir, "commands.txt", Arrays.asList(
+                "borrow,U1,B1,01/03/2025", "borrow,U2,B2,01/03/2025", "borrow,U3,B3,01/03/2025",
+                "borrow,U1,B4,03/03/2025", "borrow,U2,B5,04/03/2025", "borrow,U1,B6,02/03/2025",
+                "borrow,U2,B7,04/03/2025", "return,U2,B2"));
+        String shortLoans = write(dir, "policy.properties", Arrays.asList(
+                "student.overdueDays=1", "academic.overdueDays=1", "guest.overdueDays=1"));
+
+        int checkedDueDays = 0;
+        try {
+            for (int offset = 0; offset <= 40; offset++) {
+                LocalDate today = FIRST_BORROW.plusDays(offset);
+                LoanPolicy.setActive(LoanPolicy.defaults());
+                LibrarySystem system = new LibrarySystem();
+                system.loadItems(items);
+                system.loadUsers(users);
+                system.setLogSink(new ListLogSink(new ArrayList<>()));
+                LoanColumns columns = system.getLoanColumns();
+                check(columns.loanCount() == 0, "no loans before the commands");
+                system.processCommands(commands);
+                check(columns.loanCount() == 6, "six loans must be left after the return");
+                LoanPolicy.setActive(LoanPolicy.load(shortLoans));
+                List<String> overdue = columns.overdueItems(today);
+                long overdueCount = columns.countOverdue(today, 0);
+
+                List<String> expected = new ArrayList<>();
+                for (UserBase user : system.getUsers().values()) {
+                    List<Item> before = new ArrayList<>(user.borrowedItems);
+                    for (UserBase.Loan loan : user.dueLoans) {
+                        if (loan.dueDay == today.toEpochDay()) checkedDueDays++;
+                    }
+                    compare(columns, system, today + " before the auto-returns");
+                    user.checkOverdueItems(today);
+                    for (Item item : before) {
+                        if (!user.borrowedItems.contains(item)) expected.add(item.getId());
+                    }
+                }
+                Collections.sort(expected);
+                check(overdue.equals(expected), today + ": overdueItems " + overdue + " but auto-returned " + expected);
+                check(overdueCount == expected.size(),
+                        today + ": countOverdue " + overdueCount + " but auto-returned " + expected.size());
+
+                // Columns made after the loans copy them with the due days they got
+                LoanPolicy.setActive(LoanPolicy.defaults());
+                LibrarySystem late = new LibrarySystem();
+                late.loadItems(items);
+                late.loadUsers(users);
+                late.setLogSink(new ListLogSink(new ArrayList<>()));
+                late.processCommands(commands);
+                LoanPolicy.setActive(LoanPolicy.load(shortLoans));
+                check(late.getLoanColumns().overdueItems(today).equals(expected),
+                        today + ": columns made after the loans give " + late.getLoanColumns().overdueItems(today));
+
+                compare(columns, system, today + " after the auto-returns");
+                check(columns.countOverdue(today, 0) == 0, today + ": auto-returned loans are still in the columns");
+                system.pay(system.getUsers().get("U1"), new ListLogSink(new ArrayList<>()));
+                compare(columns, system, today + " after a payment");
+            }
+        } finally {
+            LoanPolicy.setActive(LoanPolicy.defaults());
+        }
+        check(checkedDueDays > 0, "no day fell on a due day");
+        System.out.println("LoanColumnsTest passed");
+    }
+
+    // This method checks the rows against the lists and penalties the users keep themselves.
+    private static void compare(LoanColumns columns, LibrarySystem system, String when) {
+        int[] loans = columns.loansPerUser();
+        double total = 0;
+        List<String> blocked = new ArrayList<>();
+        int row = 0;
+        for (UserBase user : system.getUsers().values()) {
+            check(loans[row] == user.borrowedItems.size(), when + ": loans of " + user.getId());
+            total += user.getPenalty();
+            if (user.getPenalty() >= 2.0) blocked.add(user.getId());
+            row++;
+        }
+        check(columns.totalPenalty() == total, when + ": total penalty " + columns.totalPenalty() + " but users have " + total);
+        check(columns.usersWithPenaltyAtLeast(2.0).equals(blocked), when + ": users with penalty");
+    }
+}
@@ -0,0 +1,109 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+
+// This benchmark counts the bytes allocated and the time per log line for three ways to write
+// the circulation messages: Utf8LogEncoder, which copies bytes encoded once; ChannelLogSink,
+// which renders every message as a string and encodes it; and string concatenation into a
+// PrintWriter, as the log was written before. The counts come from the thread allocation
+// counter of the JVM, which stands in for the gc profiler of JMH. Then the same command file
+// runs through processCommands with Utf8LogEncoder and with ChannelLogSink, and the bytes
+// allocated per command are counted for the whole run; both files must be the same.
+// Arguments: [lines] [commands] [rounds], 5000000 1000000 3 by default.
+public class LogEncoderBenchmark {
+
+    private interface Writing {
+        void write(LogMessage message, UserBase user, Item item, int number);
+    }
+
+    private static final LogMessage[] MESSAGES = {LogMessage.BORROWED, LogMessage.RETURNED,
+            LogMessage.NOT_AVAILABLE, LogMessage.PENALTY_DUE, LogMessage.PAID};
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        int commandCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        File dir = Files.createTempDirectory("encoder").toFile();
+        dir.deleteOnExit();
+        String items = TestSupport.items(dir, 20000);
+        String users = TestSupport.users(dir, 5000);
+        String commands = TestSupport.commands(dir, commandCount, 20000, 5000);
+        File out = new File(dir, "log.txt");
+        out.deleteOnExit();
+        File other = new File(dir, "other.txt");
+        other.deleteOnExit();
+
+        LibrarySystem library = new LibrarySystem();
+        library.loadItems(items);
+        library.loadUsers(users);
+        UserBase[] people = library.getUsers().values().toArray(new UserBase[0]);
+        Item[] things = library.getItems().values().toArray(new Item[0]);
+
+        for (int round = 0; round < rounds; round++) {
+            StringBuilder row = new StringBuilder("round " + round + ":");
+            try (Utf8LogEncoder sink = new Utf8LogEncoder(out.getPath())) {
+                row.append(lines(" Utf8LogEncoder", lines, people, things, sink::write));
+            }
+            try (ChannelLogSink sink = new ChannelLogSink(out.getPath())) {
+                row.append(lines(", ChannelLogSink", lines, people, things, sink::write));
+            }
+            try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(out)))) {
+                row.append(lines(", concatenation", lines, people, things,
+                        (message, user, item, number) -> writer.println(concatenate(message, user, item, number))));
+            }
+            System.out.println(row);
+
+            long encoded = processCommands(items, users, commands, out, true);
+            long rendered = processCommands(items, users, commands, other, false);
+            check(Files.readAllLines(out.toPath()).equals(Files.readAllLines(other.toPath())),
+                    "Utf8LogEncoder and ChannelLogSink wrote other logs");
+            System.out.printf("round %d: processCommands allocates %.1f bytes per command with Utf8LogEncoder"
+                    + " and %.1f with ChannelLogSink%n", round, (double) encoded / commandCount, (double) rendered / commandCount);
+        }
+    }
+
+    // This method writes the messages for the users and items in turn and returns the times and counts.
+    private static String lines(String name, int lines, UserBase[] users, Item[] items, Writing writing) {
+        long bytes = TestSupport.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < lines; i++) {
+            writing.write(MESSAGES[i % MESSAGES.length], users[i % users.length], items[i % items.length], i & 1023);
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = TestSupport.allocatedBytes() - bytes;
+        return String.format("%s %.0f ns and %.1f bytes per line", name, (double) nanos / lines, (double) allocated / lines);
+    }
+
+    // This method builds the line the way the log lines were built before LogMessage.
+    private static String concatenate(LogMessage message, UserBase user, Item item, int number) {
+        switch (message) {
+            case BORROWED: return user.getName() + " successfully borrowed! " + item.getTitle();
+            case RETURNED: return user.getName() + " successfully returned " + item.getTitle();
+            case NOT_AVAILABLE: return user.getName() + " cannot borrow " + item.getTitle() + ", it is not available!";
+            case PENALTY_DUE: return user.getName() + " cannot borrow " + item.getTitle()
+                    + ", you must first pay the penalty amount! " + number + "$";
+            default: return user.getName() + " has paid penalty";
+        }
+    }
+
+    // This method runs the commands into the file and returns the bytes the thread allocated meanwhile.
+    private static long processCommands(String items, String users, String commands, File out, boolean encoder)
+            throws IOException {
+        LibrarySystem system = new LibrarySystem();
+        system.loadItems(items);
+        system.loadUsers(users);
+        try (LogSink sink = encoder ? new Utf8LogEncoder(out.getPath()) : new ChannelLogSink(out.getPath())) {
+            system.setLogSink(sink);
+            long bytes = TestSupport.allocatedBytes();
+            system.processCommands(commands);
+            return TestSupport.allocatedBytes() - bytes;
+        }
+    }
+}
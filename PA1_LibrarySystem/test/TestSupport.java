@@ -0,0 +1,129 @@
+package Library;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// This class holds the helpers shared by the tests and benchmarks of this folder.
+// Each of them is a class with a main method; build and run one with:
+//   javac -d out *.java test/*.java && java -cp out Library.<ClassName>
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    // This method fails the test with the message when the condition does not hold.
+    static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    // This method writes the lines to a file in the directory that is deleted on exit and returns its path.
+    static String write(File dir, String name, List<String> lines) throws IOException {
+        File file = new File(dir, name);
+        file.deleteOnExit();
+        Files.write(file.toPath(), lines);
+        return file.getPath();
+    }
+
+    // These words make up the titles, names and categories of the generated catalogs.
+    private static final String[] WORDS = {
+            "river", "stone", "night", "garden", "silver", "winter", "letters", "harbor", "orchard", "glass",
+            "empire", "music", "journey", "shadow", "island", "machine", "forest", "memory", "science", "history"};
+
+    // This method writes a generated catalog of books, magazines and DVDs in turn, with the IDs
+    // I0000000 upward, for the benchmarks. Every tenth item has a restricted type.
+    static String items(File dir, int count) throws IOException {
+        Random random = new Random(1);
+        String[] types = {"normal", "normal", "normal", "normal", "normal", "normal", "normal", "reference", "rare", "limited"};
+        File file = new File(dir, "items-" + count + ".txt");
+        file.deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                String id = itemId(i);
+                String title = word(random) + " " + word(random) + " " + word(random);
+                String type = types[random.nextInt(types.length)];
+                switch (i % 3) {
+                    case 0: out.write("B," + id + "," + title + ",Author " + word(random) + "," + word(random) + "," + type); break;
+                    case 1: out.write("M," + id + "," + title + ",Press " + word(random) + "," + word(random) + "," + type); break;
+                    default: out.write("D," + id + "," + title + ",Director " + word(random) + "," + word(random) + ","
+                            + (60 + random.nextInt(120)) + " min," + type); break;
+                }
+                out.newLine();
+            }
+        }
+        return file.getPath();
+    }
+
+    // This method writes generated students, academic staff and guests in turn, with the IDs U0000000 upward.
+    static String users(File dir, int count) throws IOException {
+        Random random = new Random(2);
+        File file = new File(dir, "users-" + count + ".txt");
+        file.deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                String name = word(random) + " " + word(random);
+                String phone = String.valueOf(5550000 + i);
+                switch (i % 3) {
+                    case 0: out.write("S," + name + "," + userId(i) + "," + phone + ",Dept,Faculty " + word(random) + "," + (1 + random.nextInt(4))); break;
+                    case 1: out.write("A," + name + "," + userId(i) + "," + phone + ",Dept,Faculty " + word(random) + ",Dr."); break;
+                    default: out.write("G," + name + "," + userId(i) + "," + phone + ",Writer"); break;
+                }
+                out.newLine();
+            }
+        }
+        return file.getPath();
+    }
+
+    // This method writes generated borrows, returns and payments over the catalogs of the
+    // other two methods. The date moves one day on every thousand commands, so loans expire.
+    static String commands(File dir, int count, int itemCount, int userCount) throws IOException {
+        Random random = new Random(3);
+        File file = new File(dir, "commands-" + count + ".txt");
+        file.deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                String user = userId(random.nextInt(userCount));
+                String item = itemId(random.nextInt(itemCount));
+                int kind = random.nextInt(20);
+                if (kind < 12) out.write("borrow," + user + "," + item + "," + date(i / 1000));
+                else if (kind < 19) out.write("return," + user + "," + item);
+                else out.write("pay," + user);
+                out.newLine();
+            }
+        }
+        return file.getPath();
+    }
+
+    static String itemId(int i) {
+        return String.format(Locale.ROOT, "I%07d", i);
+    }
+
+    static String userId(int i) {
+        return String.format(Locale.ROOT, "U%07d", i);
+    }
+
+    // This method gives the dd/MM/yyyy text of the day that many days after 01/01/2024.
+    private static String date(int days) {
+        LocalDate day = LocalDate.of(2024, 1, 1).plusDays(days);
+        return String.format(Locale.ROOT, "%02d/%02d/%04d", day.getDayOfMonth(), day.getMonthValue(), day.getYear());
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    // This method returns how many bytes the current thread has allocated so far, for the
+    // benchmarks that count garbage; it is -1 on a JVM that does not count them.
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,108 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// This test checks TitleSearchIndex against scoring every item of the catalog by hand.
+// The catalogs have IDs out of order, reloaded IDs, borrowed items and prefixes shared by
+// more items than a trie node keeps, so the search has to go on below the kept IDs.
+public class TitleSearchIndexTest {
+
+    private static final String[] WORDS = {
+            "cat", "cats", "category", "catalog", "dog", "dogma", "harry", "potter", "pot", "the", "a",
+            "apple", "applet", "apply", "sea", "season", "mountain", "mountian", "moutain", "zebra", "zoo",
+            "be", "bee", "beer", "bees"};
+
+    public static void main(String[] args) {
+        int queries = 0;
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            TitleSearchIndex index = new TitleSearchIndex();
+            // The last item added with an ID is the one that can be found.
+            Map<String, Item> catalog = new LinkedHashMap<>();
+            int count = 20 + random.nextInt(400);
+            for (int i = 0; i < count; i++) {
+                int number = random.nextBoolean() ? i : random.nextInt(2 * count);
+                String id = String.format("B%05d", number);
+                StringBuilder title = new StringBuilder();
+                for (int w = 1 + random.nextInt(4); w > 0; w--) {
+                    title.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(5) == 0 ? "s " : " ");
+                }
+                Item item = new BookItem(id, title.toString(), "Author", "Genre", "normal");
+                if (random.nextInt(3) == 0) item.borrowItem(1, 1);
+                index.add(item);
+                catalog.remove(id);
+                catalog.put(id, item);
+            }
+            for (int q = 0; q < 100; q++, queries++) {
+                StringBuilder query = new StringBuilder();
+                for (int w = 1 + random.nextInt(3); w > 0; w--) {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    if (random.nextInt(4) == 0) word = word.substring(0, 1 + random.nextInt(word.length()));
+                    query.append(word).append(random.nextInt(6) == 0 ? "x " : " ");
+                }
+                int limit = 1 + random.nextInt(random.nextBoolean() ? 5 : 100);
+                boolean availableOnly = random.nextBoolean();
+                List<Item> expected = expected(catalog.values(), query.toString(), limit, availableOnly);
+                List<Item> actual = index.search(query.toString(), limit, availableOnly);
+                check(expected.equals(actual), "seed " + seed + ": '" + query + "' limit " + limit
+                        + (availableOnly ? " available" : "") + " gave " + ids(actual) + ", expected " + ids(expected));
+            }
+        }
+        System.out.println("TitleSearchIndexTest passed (" + queries + " queries)");
+    }
+
+    // Every item is scored on its own: 3 for the word itself, 2 for a longer word starting with it,
+    // 1 for a word with the same first letter within one or two edits, the best per query word.
+    private static List<Item> expected(Iterable<Item> catalog, String query, int limit, boolean availableOnly) {
+        List<String> queryWords = TitleSearchIndex.tokenize(query);
+        List<Item> found = new ArrayList<>();
+        Map<Item, Integer> scores = new LinkedHashMap<>();
+        for (Item item : catalog) {
+            if (availableOnly && item.isBorrowed()) continue;
+            int total = 0;
+            for (String word : queryWords) {
+                int best = 0;
+                for (String titleWord : TitleSearchIndex.tokenize(item.getTitle())) {
+                    int edits = word.length() <= 3 ? 0 : word.length() <= 7 ? 1 : 2;
+                    if (titleWord.equals(word)) best = Math.max(best, 3);
+                    else if (titleWord.startsWith(word)) best = Math.max(best, 2);
+                    else if (edits > 0 && titleWord.charAt(0) == word.charAt(0)
+                            && levenshtein(word, titleWord) <= edits) best = Math.max(best, 1);
+                }
+                total += best;
+            }
+            if (total > 0) {
+                found.add(item);
+                scores.put(item, total);
+            }
+        }
+        found.sort((a, b) -> scores.get(a).equals(scores.get(b)) ? a.getId().compareTo(b.getId())
+                : scores.get(b) - scores.get(a));
+        return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String ids(List<Item> items) {
+        StringBuilder out = new StringBuilder("[");
+        for (Item item : items) out.append(out.length() > 1 ? " " : "").append(item.getId());
+        return out.append(']').toString();
+    }
+}
@@ -0,0 +1,82 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+// This benchmark measures how many commands per second TransactionJournal makes durable for
+// different batch sizes, where every batch costs one fsync. A batch size runs at most 5000
+// batches, so the small batches finish on slow disks too. It then runs a generated command
+// file through processCommands without a journal and with one, and replays the journal.
+// Arguments: [commands] [rounds], 200000 3 by default.
+public class TransactionJournalBenchmark {
+
+    private static final int[] BATCH_SIZES = {1, 8, 64, 512, 4096};
+    private static final int MAX_BATCHES = 5000;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File dir = Files.createTempDirectory("journal-bench").toFile();
+        dir.deleteOnExit();
+        String items = TestSupport.items(dir, 20000);
+        String users = TestSupport.users(dir, 5000);
+        String commands = TestSupport.commands(dir, count, 20000, 5000);
+        List<String> lines = Files.readAllLines(new File(commands).toPath());
+        File journalFile = new File(dir, "journal.bin");
+        journalFile.deleteOnExit();
+
+        for (int round = 0; round < rounds; round++) {
+            StringBuilder row = new StringBuilder("round " + round + ": appends per second by batch size");
+            for (int batch : BATCH_SIZES) {
+                Files.deleteIfExists(journalFile.toPath());
+                int n = Math.min(lines.size(), batch * MAX_BATCHES);
+                long start = System.nanoTime();
+                try (TransactionJournal journal = new TransactionJournal(journalFile.getPath(), batch)) {
+                    for (int i = 0; i < n; i++) journal.append(lines.get(i));
+                }
+                long nanos = System.nanoTime() - start;
+                check(TransactionJournal.read(journalFile.getPath()).size() == n, "the journal lost records");
+                row.append(String.format(" %d: %.0f", batch, n * 1e9 / nanos));
+            }
+            System.out.println(row);
+
+            long plain = run(items, users, commands, null, 0);
+            Files.deleteIfExists(journalFile.toPath());
+            long journaled = run(items, users, commands, journalFile.getPath(), 512);
+            long start = System.nanoTime();
+            LibrarySystem replay = new LibrarySystem();
+            replay.loadItems(items);
+            replay.loadUsers(users);
+            replay.setLogSink(new ListLogSink(new ArrayList<>()));
+            int replayed = replay.recoverFromJournal(journalFile.getPath());
+            long replayMs = (System.nanoTime() - start) / 1000000;
+            check(replayed == lines.size(), "replayed " + replayed + " of " + lines.size() + " commands");
+            System.out.printf("round %d: processCommands %d ms, with a journal of batch 512 %d ms, replay %d ms%n",
+                    round, plain, journaled, replayMs);
+        }
+    }
+
+    // This method runs the commands with the journal, if one is given, and returns the milliseconds.
+    private static long run(String items, String users, String commands, String journalFile, int batch)
+            throws IOException {
+        LibrarySystem system = new LibrarySystem();
+        system.loadItems(items);
+        system.loadUsers(users);
+        system.setLogSink(new ListLogSink(new ArrayList<>()));
+        long start = System.nanoTime();
+        if (journalFile == null) {
+            system.processCommands(commands);
+        } else {
+            try (TransactionJournal journal = new TransactionJournal(journalFile, batch)) {
+                system.setJournal(journal);
+                system.processCommands(commands);
+            }
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+}
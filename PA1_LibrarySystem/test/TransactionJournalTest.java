@@ -0,0 +1,55 @@
+package Library;
+
+import static Library.TestSupport.check;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+// This test checks that a journal with a record cut off by a crash can be opened again,
+// and that the records appended after the crash are replayed.
+public class TransactionJournalTest {
+
+    public static void main(String[] args) throws IOException {
+        File file = File.createTempFile("journal", ".wal");
+        file.deleteOnExit();
+        try (TransactionJournal journal = new TransactionJournal(file.getPath(), 2)) {
+            journal.append("borrow,U1,B1,01/01/2025");
+            journal.append("return,U1,B1");
+        }
+
+        // A crash in the middle of a record leaves a header and part of the command behind
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(raw.length());
+            raw.writeInt(40);
+            raw.writeInt(12345);
+            raw.writeBytes("pay,U");
+        }
+        check(TransactionJournal.read(file.getPath()).size() == 2, "torn record must not be read");
+
+        try (TransactionJournal journal = new TransactionJournal(file.getPath(), 1)) {
+            journal.append("pay,U1");
+        }
+        List<String> replayed = TransactionJournal.read(file.getPath());
+        check(replayed.equals(Arrays.asList("borrow,U1,B1,01/01/2025", "return,U1,B1", "pay,U1")),
+                "records after the crash must be replayed, got " + replayed);
+
+        // Garbage with a wrong checksum is cut off in the same way
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(raw.length());
+            raw.writeInt(3);
+            raw.writeInt(0);
+            raw.writeBytes("xyz");
+        }
+        try (TransactionJournal journal = new TransactionJournal(file.getPath(), 1)) {
+            journal.append("pay,U2");
+        }
+        replayed = TransactionJournal.read(file.getPath());
+        check(replayed.size() == 4 && replayed.get(3).equals("pay,U2"),
+                "record after a bad checksum must be replayed, got " + replayed);
+
+        System.out.println("TransactionJournalTest passed");
+    }
+}
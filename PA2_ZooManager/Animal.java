@@ -1,14 +1,14 @@
-import java.util.List;
-import java.util.Locale;
-
 public abstract class Animal {
     // Common properties for all animals
     protected String name;
     protected int age;
+    // Meal amounts worked out from the age when the animal is loaded
+    protected final FeedingPlan plan;
 
-    public Animal(String name, int age) {
+    public Animal(String name, int age, FeedingPlan plan) {
         this.name = name;
         this.age = age;
+        this.plan = plan;
     }
 
     // Get the name of the animal
@@ -16,111 +16,147 @@ public abstract class Animal {
         return name;
     }
 
-    // Abstract method for feeding the animal
-    public abstract void feed(int mealCount, FoodStock stock, List<String> output) throws ZooException.NotEnoughFoodException;
+    // Feeds the animal, throwing an exception if there is not enough food
+    public void feed(int mealCount, FoodSupply stock, OutputSink output) throws ZooException.NotEnoughFoodException {
+        int result = tryFeed(mealCount, stock, output);
+        if (result != ZooResult.OK)
+            throw new ZooException.NotEnoughFoodException(ZooResult.message(result, 0, null));
+    }
+
+    // Abstract method for feeding the animal; returns ZooResult.OK or the NOT_ENOUGH code of the food
+    public abstract int tryFeed(int mealCount, FoodSupply stock, OutputSink output);
 
     // Abstract method for cleaning the animal's habitat
-    public abstract void cleanHabitat(List<String> output);
+    public abstract void cleanHabitat(OutputSink output);
+}
+
+// ------------------ FeedingPlan ------------------
+// Food indexes and kgs of one meal for an animal; secondFood is NONE when it eats one food
+final class FeedingPlan {
+    static final int NONE = -1;
+
+    final int food;
+    final double perMeal;
+    final int secondFood;
+    final double secondPerMeal;
+
+    private FeedingPlan(int food, double perMeal, int secondFood, double secondPerMeal) {
+        this.food = food;
+        this.perMeal = perMeal;
+        this.secondFood = secondFood;
+        this.secondPerMeal = secondPerMeal;
+    }
+
+    static FeedingPlan of(int food, double perMeal) {
+        return new FeedingPlan(food, perMeal, NONE, 0);
+    }
+
+    static FeedingPlan of(int food, double perMeal, int secondFood, double secondPerMeal) {
+        return new FeedingPlan(food, perMeal, secondFood, secondPerMeal);
+    }
 }
 
 // ------------------ Lion ------------------
 class Lion extends Animal {
     public Lion(String name, int age) {
-        super(name, age); // Call parent constructor
+        // Meal size for a lion is based on age
+        super(name, age, FeedingPlan.of(FoodStock.MEAT, 5.0 + 0.25 * (age - 5))); // Call parent constructor
     }
 
     @Override
-    public void feed(int mealCount, FoodStock stock, List<String> output) throws ZooException.NotEnoughFoodException {
-        // Calculate meal size for lion based on age
-        double mealPer = 5.0 + 0.25 * (age - 5);
-        double total = mealPer * mealCount;
-        stock.consume("Meat", total); // Consume meat from stock
+    public int tryFeed(int mealCount, FoodSupply stock, OutputSink output) {
+        double total = plan.perMeal * mealCount;
+        int result = stock.tryConsume(plan.food, total); // Consume meat from stock
+        if (result != ZooResult.OK) return result;
 
-        // Format number: remove unnecessary zeros
-        String display = String.format(Locale.US, "%.3f", total);
+        String display = FoodStock.formatKgs(total);
 
         // Add result to output
-        output.add(name + " has been given " + display + " kgs of meat");
+        output.write(name + " has been given " + display + " kgs of meat");
+        return ZooResult.OK;
     }
 
     @Override
-    public void cleanHabitat(List<String> output) {
+    public void cleanHabitat(OutputSink output) {
         // Output cleaning message specific to lion
-        output.add("Cleaning " + name + "'s habitat: Removing bones and refreshing sand.");
+        output.write("Cleaning " + name + "'s habitat: Removing bones and refreshing sand.");
     }
 }
 
 // ------------------ Elephant ------------------
 class Elephant extends Animal {
     public Elephant(String name, int age) {
-        super(name, age);
+        // Meal size for an elephant is based on age
+        super(name, age, FeedingPlan.of(FoodStock.PLANT, 10.0 + 0.18 * (age - 20)));
     }
 
     @Override
-    public void feed(int mealCount, FoodStock stock, List<String> output) throws ZooException.NotEnoughFoodException {
-        // Calculate meal size for elephant
-        double mealPer = 10.0 + 0.18 * (age - 20);
-        double total = mealPer * mealCount;
-        stock.consume("Plant", total); // Elephants eat plants
+    public int tryFeed(int mealCount, FoodSupply stock, OutputSink output) {
+        double total = plan.perMeal * mealCount;
+        int result = stock.tryConsume(plan.food, total); // Elephants eat plants
+        if (result != ZooResult.OK) return result;
 
-        String display = String.format(Locale.US, "%.3f", total);
+        String display = FoodStock.formatKgs(total);
 
-        output.add(name + " has been given " + display + " kgs assorted fruits and hay");
+        output.write(name + " has been given " + display + " kgs assorted fruits and hay");
+        return ZooResult.OK;
     }
 
     @Override
-    public void cleanHabitat(List<String> output) {
-        output.add("Cleaning " + name + "'s habitat: Washing the water area.");
+    public void cleanHabitat(OutputSink output) {
+        output.write("Cleaning " + name + "'s habitat: Washing the water area.");
     }
 }
 
 // ------------------ Penguin ------------------
 class Penguin extends Animal {
     public Penguin(String name, int age) {
-        super(name, age);
+        // Meal size for a penguin is based on age
+        super(name, age, FeedingPlan.of(FoodStock.FISH, 3.0 + 0.04 * (age - 4)));
     }
 
     @Override
-    public void feed(int mealCount, FoodStock stock, List<String> output) throws ZooException.NotEnoughFoodException {
-        // Calculate meal size for penguin
-        double mealPer = 3.0 + 0.04 * (age - 4);
-        double total = mealPer * mealCount;
-        stock.consume("Fish", total); // Penguins eat fish
+    public int tryFeed(int mealCount, FoodSupply stock, OutputSink output) {
+        double total = plan.perMeal * mealCount;
+        int result = stock.tryConsume(plan.food, total); // Penguins eat fish
+        if (result != ZooResult.OK) return result;
 
-        String display = String.format(Locale.US, "%.3f", total);
+        String display = FoodStock.formatKgs(total);
 
-        output.add(name + " has been given " + display + " kgs of various kinds of fish");
+        output.write(name + " has been given " + display + " kgs of various kinds of fish");
+        return ZooResult.OK;
     }
 
     @Override
-    public void cleanHabitat(List<String> output) {
-        output.add("Cleaning " + name + "'s habitat: Replenishing ice and scrubbing walls.");
+    public void cleanHabitat(OutputSink output) {
+        output.write("Cleaning " + name + "'s habitat: Replenishing ice and scrubbing walls.");
     }
 }
 
 // ------------------ Chimpanzee ------------------
 class Chimpanzee extends Animal {
     public Chimpanzee(String name, int age) {
-        super(name, age);
+        // The daily amount is based on age and split between meat and plants
+        super(name, age, FeedingPlan.of(FoodStock.MEAT, (6.0 + 0.15 * (age - 10)) / 2.0,
+                FoodStock.PLANT, (6.0 + 0.15 * (age - 10)) / 2.0));
     }
 
     @Override
-    public void feed(int mealCount, FoodStock stock, List<String> output) throws ZooException.NotEnoughFoodException {
-        // Calculate total food amount based on age
-        double total = 6.0 + 0.15 * (age - 10);
-        double each = total / 2.0; // Split between meat and plants
-        double totalEach = each * mealCount;
-
-        stock.consume("Meat", totalEach);
-        stock.consume("Plant", totalEach);
+    public int tryFeed(int mealCount, FoodSupply stock, OutputSink output) {
+        double meat = plan.perMeal * mealCount;
+        double leaves = plan.secondPerMeal * mealCount;
 
-        String display = String.format(Locale.US, "%.3f", totalEach);
+        // Meat and plants are taken together, so a shortage of either takes nothing
+        int result = stock.tryConsume(plan.food, meat, plan.secondFood, leaves);
+        if (result != ZooResult.OK) return result;
 
-        output.add(name + " has been given " + display + " kgs of meat and " + display + " kgs of leaves");
+        output.write(name + " has been given " + FoodStock.formatKgs(meat) + " kgs of meat and "
+                + FoodStock.formatKgs(leaves) + " kgs of leaves");
+        return ZooResult.OK;
     }
 
     @Override
-    public void cleanHabitat(List<String> output) {
-        output.add("Cleaning " + name + "'s habitat: Sweeping the enclosure and replacing branches.");
+    public void cleanHabitat(OutputSink output) {
+        output.write("Cleaning " + name + "'s habitat: Sweeping the enclosure and replacing branches.");
     }
 }
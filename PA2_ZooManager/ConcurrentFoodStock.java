@@ -0,0 +1,135 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Food stock that many keepers can use at the same time
+// Every amount is kept as the bits of its double in one slot of an AtomicLongArray and is
+// changed with compareAndSet, so taking one food type never takes a lock and never allocates
+// Taking two food types at once first claims both slots, in index order, by swapping in a
+// marker that no amount can have; the others wait while a slot is claimed, so no thread ever
+// sees one of the two taken without the other
+// The amounts are the same doubles as in FoodStock and are checked and subtracted in the same
+// order, so the same consumptions in the same order give the same results and the same listing
+public class ConcurrentFoodStock implements FoodSupply {
+
+    // Bits of a signalling NaN, which no arithmetic gives, put in a slot while it is claimed
+    private static final long CLAIMED = 0x7ff4000000000001L;
+
+    // Current amounts of all food types, as double bits by food index
+    private final AtomicLongArray kgs = new AtomicLongArray(3);
+
+    public ConcurrentFoodStock(double meat, double fish, double plant) {
+        kgs.set(FoodStock.MEAT, Double.doubleToRawLongBits(meat));
+        kgs.set(FoodStock.FISH, Double.doubleToRawLongBits(fish));
+        kgs.set(FoodStock.PLANT, Double.doubleToRawLongBits(plant));
+    }
+
+    @Override
+    public int tryConsume(int food, double amount) {
+        checkIndex(food);
+        while (true) {
+            long bits = kgs.get(food);
+            if (bits == CLAIMED) {
+                Thread.yield();
+                continue;
+            }
+            double left = Double.longBitsToDouble(bits);
+            if (left < amount)
+                return FoodStock.notEnough(food);
+            if (kgs.compareAndSet(food, bits, Double.doubleToRawLongBits(left - amount)))
+                return ZooResult.OK;
+        }
+    }
+
+    // (the first food is checked first, so its error wins when both are short, as in FoodStock)
+    @Override
+    public int tryConsume(int first, double firstAmount, int second, double secondAmount) {
+        checkIndex(first);
+        checkIndex(second);
+        if (second == first) {
+            while (true) {
+                long bits = kgs.get(first);
+                if (bits == CLAIMED) {
+                    Thread.yield();
+                    continue;
+                }
+                double left = Double.longBitsToDouble(bits);
+                if (left < firstAmount)
+                    return FoodStock.notEnough(first);
+                if (left - firstAmount < secondAmount)
+                    return FoodStock.notEnough(second);
+                double after = left - firstAmount - secondAmount;
+                if (kgs.compareAndSet(first, bits, Double.doubleToRawLongBits(after)))
+                    return ZooResult.OK;
+            }
+        }
+
+        // Claiming in index order means two threads never wait for each other's slots
+        long firstBits;
+        long secondBits;
+        if (first < second) {
+            firstBits = claim(first);
+            secondBits = claim(second);
+        } else {
+            secondBits = claim(second);
+            firstBits = claim(first);
+        }
+        double firstLeft = Double.longBitsToDouble(firstBits);
+        double secondLeft = Double.longBitsToDouble(secondBits);
+        int result = ZooResult.OK;
+        if (firstLeft < firstAmount) {
+            result = FoodStock.notEnough(first);
+        } else if (secondLeft < secondAmount) {
+            result = FoodStock.notEnough(second);
+        } else {
+            firstBits = Double.doubleToRawLongBits(firstLeft - firstAmount);
+            secondBits = Double.doubleToRawLongBits(secondLeft - secondAmount);
+        }
+        // A failed consumption puts back the very same bits
+        kgs.set(second, secondBits);
+        kgs.set(first, firstBits);
+        return result;
+    }
+
+    @Override
+    public double get(String type) {
+        int food = FoodStock.indexOf(type);
+        long bits;
+        while ((bits = kgs.get(food)) == CLAIMED)
+            Thread.yield();
+        return Double.longBitsToDouble(bits);
+    }
+
+    @Override
+    public String getFormattedStock() {
+        return snapshot().getFormattedStock();
+    }
+
+    // Returns a plain stock with the amounts of one moment, which can be read without
+    // holding up the threads that keep taking food from this one
+    // All three slots are claimed for the copy, so no two-food consumption is half seen
+    public FoodStock snapshot() {
+        long meat = claim(FoodStock.MEAT);
+        long fish = claim(FoodStock.FISH);
+        long plant = claim(FoodStock.PLANT);
+        kgs.set(FoodStock.PLANT, plant);
+        kgs.set(FoodStock.FISH, fish);
+        kgs.set(FoodStock.MEAT, meat);
+        return new FoodStock(Double.longBitsToDouble(meat), Double.longBitsToDouble(fish),
+                Double.longBitsToDouble(plant));
+    }
+
+    // Swaps the marker into a slot and returns the amount bits it held, waiting while another
+    // thread has the slot
+    private long claim(int food) {
+        while (true) {
+            long bits = kgs.get(food);
+            if (bits != CLAIMED && kgs.compareAndSet(food, bits, CLAIMED))
+                return bits;
+            Thread.yield();
+        }
+    }
+
+    private static void checkIndex(int food) {
+        if (food < FoodStock.MEAT || food > FoodStock.PLANT)
+            throw new IllegalArgumentException("Unknown food index: " + food);
+    }
+}
@@ -0,0 +1,62 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+// Streams output lines to a file while commands run, so memory does not grow with the input
+public class FileOutputSink implements OutputSink {
+
+    // Size of the character buffer in front of the file
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedWriter writer;
+    private final String lineSeparator = System.lineSeparator();
+    // Lines are pushed to the file after this many lines (0 = only when the buffer is full)
+    private final int flushEvery;
+    private int unflushed;
+    // First write error, reported when the sink is flushed or closed
+    private IOException error;
+
+    // Opens (and empties) the file; the buffer is flushed only when it is full
+    public FileOutputSink(String fileName) throws IOException {
+        this(fileName, 0);
+    }
+
+    // Opens (and empties) the file; the lines are also flushed after every flushEvery lines
+    public FileOutputSink(String fileName, int flushEvery) throws IOException {
+        if (flushEvery < 0)
+            throw new IllegalArgumentException("Flush interval must not be negative: " + flushEvery);
+        this.writer = new BufferedWriter(new FileWriter(fileName), BUFFER_SIZE);
+        this.flushEvery = flushEvery;
+    }
+
+    @Override
+    public void write(String line) {
+        if (error != null) return; // Later lines are dropped after an error
+        try {
+            writer.write(line);
+            writer.write(lineSeparator);
+            if (flushEvery > 0 && ++unflushed >= flushEvery) {
+                writer.flush();
+                unflushed = 0;
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (error != null) throw error;
+        writer.flush();
+        unflushed = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (error != null) throw error;
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -1,37 +1,86 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Locale;
 
-public class FoodStock {
+public class FoodStock implements FoodSupply {
 
-    // Amounts of food types available in the stock
-    private double meat;
-    private double fish;
-    private double plant;
+    // Indexes of the food types for the exception-free methods
+    public static final int MEAT = 0;
+    public static final int FISH = 1;
+    public static final int PLANT = 2;
+
+    // Amounts below this are printed with the fast path of formatKgs
+    private static final double FAST_FORMAT_LIMIT = 1e9;
+    // Distance from a rounding tie, in thousandths of a kg, that is left to BigDecimal
+    private static final double TIE_MARGIN = 1e-3;
+
+    // Amounts of food types available in the stock, by food index
+    private final double[] amounts = new double[3];
 
     // Constructor to initialize food amounts
     public FoodStock(double meat, double fish, double plant) {
-        this.meat = meat;
-        this.fish = fish;
-        this.plant = plant;
+        amounts[MEAT] = meat;
+        amounts[FISH] = fish;
+        amounts[PLANT] = plant;
     }
 
     // Consumes a specific amount of food from the stock
     public void consume(String type, double amount) throws ZooException.NotEnoughFoodException {
+        int result = tryConsume(indexOf(type), amount);
+        if (result != ZooResult.OK) // If not enough food, throw exception
+            throw new ZooException.NotEnoughFoodException(ZooResult.message(result, 0, null));
+    }
+
+    // Consumes food without throwing; returns ZooResult.OK or the NOT_ENOUGH code of the food
+    @Override
+    public int tryConsume(int food, double amount) {
+        if (amount(food) < amount)
+            return notEnough(food);
+        amounts[food] -= amount; // Subtract from stock
+        return ZooResult.OK;
+    }
+
+    // Consumes two amounts together: nothing is taken unless there is enough of both
+    // (the first food is checked first, so its error wins when both are short)
+    @Override
+    public int tryConsume(int first, double firstAmount, int second, double secondAmount) {
+        double left = amount(first);
+        if (left < firstAmount)
+            return notEnough(first);
+        if (second == first) {
+            if (left - firstAmount < secondAmount)
+                return notEnough(second);
+        } else if (amount(second) < secondAmount) {
+            return notEnough(second);
+        }
+        amounts[first] -= firstAmount;
+        amounts[second] -= secondAmount;
+        return ZooResult.OK;
+    }
+
+    // Returns the amount of a food by index
+    private double amount(int food) {
+        if (food < MEAT || food > PLANT)
+            throw new IllegalArgumentException("Unknown food index: " + food);
+        return amounts[food];
+    }
+
+    // Returns the NOT_ENOUGH result code of a food
+    protected static int notEnough(int food) {
+        switch (food) {
+            case MEAT: return ZooResult.NOT_ENOUGH_MEAT;
+            case FISH: return ZooResult.NOT_ENOUGH_FISH;
+            case PLANT: return ZooResult.NOT_ENOUGH_PLANT;
+            default: throw new IllegalArgumentException("Unknown food index: " + food);
+        }
+    }
+
+    // Returns the index of a food type name
+    public static int indexOf(String type) {
         switch (type.toLowerCase()) {
-            case "meat":
-                if (meat < amount) // If not enough meat, throw exception
-                    throw new ZooException.NotEnoughFoodException("Not enough Meat");
-                meat -= amount; // Subtract from stock
-                break;
-            case "fish":
-                if (fish < amount)
-                    throw new ZooException.NotEnoughFoodException("Not enough Fish");
-                fish -= amount;
-                break;
-            case "plant":
-                if (plant < amount)
-                    throw new ZooException.NotEnoughFoodException("Not enough Plant");
-                plant -= amount;
-                break;
+            case "meat": return MEAT;
+            case "fish": return FISH;
+            case "plant": return PLANT;
             default:
                 // If unknown type is given, throw illegal argument exception
                 throw new IllegalArgumentException("Unknown food type: " + type);
@@ -39,27 +88,37 @@ public class FoodStock {
     }
 
     // Returns current amount of requested food type
+    @Override
     public double get(String type) {
-        switch (type.toLowerCase()) {
-            case "meat": return meat;
-            case "fish": return fish;
-            case "plant": return plant;
-            default: throw new IllegalArgumentException("Unknown food type: " + type);
-        }
+        return amounts[indexOf(type)];
     }
 
     // Returns a formatted string showing remaining food stock
+    @Override
     public String getFormattedStock() {
-        // Format values and remove unnecessary zeros from decimals
-        String p = String.format(Locale.US, "%.3f", plant);
-
-        String f = String.format(Locale.US, "%.3f", fish);
+        return "Plant: " + formatKgs(amounts[PLANT]) + " kgs\n" +
+                "Fish: " + formatKgs(amounts[FISH]) + " kgs\n" +
+                "Meat: " + formatKgs(amounts[MEAT]) + " kgs";
+    }
 
-        String m = String.format(Locale.US, "%.3f", meat);
+    // Formats kgs with three decimals, the same text as String.format(Locale.US, "%.3f", kgs)
+    // Usual amounts are rounded with long arithmetic; values close to a tie between two
+    // thousandths, where the float error of kgs * 1000 could matter, go through BigDecimal
+    public static String formatKgs(double kgs) {
+        if (!(kgs > 0 && kgs < FAST_FORMAT_LIMIT)) // Zero keeps its sign, NaN and huge values
+            return String.format(Locale.US, "%.3f", kgs);
+        double scaled = kgs * 1000.0;
+        long grams = (long) scaled;
+        double fraction = scaled - grams;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN)
+            return BigDecimal.valueOf(kgs).setScale(3, RoundingMode.HALF_UP).toPlainString();
+        if (fraction > 0.5)
+            grams++;
 
-        // Combine all formatted values into one output string
-        return "Plant: " + p + " kgs\n" +
-                "Fish: " + f + " kgs\n" +
-                "Meat: " + m + " kgs";
+        StringBuilder text = new StringBuilder(16).append(grams / 1000).append('.');
+        long rest = grams % 1000;
+        if (rest < 100) text.append('0');
+        if (rest < 10) text.append('0');
+        return text.append(rest).toString();
     }
 }
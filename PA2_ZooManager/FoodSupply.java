@@ -0,0 +1,17 @@
+// Food that the animals are fed from (a plain FoodStock, or one that many threads share)
+// The foods are the indexes of FoodStock, and the methods return ZooResult codes
+public interface FoodSupply {
+
+    // Consumes food without throwing; returns ZooResult.OK or the NOT_ENOUGH code of the food
+    int tryConsume(int food, double amount);
+
+    // Consumes two amounts together: nothing is taken unless there is enough of both
+    // (the first food is checked first, so its error wins when both are short)
+    int tryConsume(int first, double firstAmount, int second, double secondAmount);
+
+    // Returns current amount of requested food type
+    double get(String type);
+
+    // Returns a formatted string showing remaining food stock
+    String getFormattedStock();
+}
@@ -0,0 +1,25 @@
+import java.util.List;
+
+// Keeps the lines in a list, so they can be written all at once at the end
+public class ListOutputSink implements OutputSink {
+    private final List<String> lines;
+
+    public ListOutputSink(List<String> lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public void write(String line) {
+        lines.add(line);
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to push, lines stay in the list
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
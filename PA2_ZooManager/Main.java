@@ -2,11 +2,23 @@ import java.io.IOException;
 
 public class Main {
     public static void main(String[] args) {
-        // Check if the program received exactly 5 arguments
-        if (args.length != 5) {
-            System.out.println("Usage: java Main animals.txt persons.txt foods.txt commands.txt output.txt");
+        // Check if the program received 5 arguments, or 6 with the number of worker threads
+        if (args.length != 5 && args.length != 6) {
+            System.out.println("Usage: java Main animals.txt persons.txt foods.txt commands.txt output.txt [workers]");
             return; // Stop the program if argument count is wrong
         }
+        int workers = 0; // 0 runs the commands on this thread
+        if (args.length == 6) {
+            try {
+                workers = Integer.parseInt(args[5]);
+            } catch (NumberFormatException e) {
+                workers = -1;
+            }
+            if (workers < 1) {
+                System.out.println("Workers must be a positive number: " + args[5]);
+                return;
+            }
+        }
 
         // Assign command-line arguments to variables
         String animalsFile = args[0];
@@ -18,17 +30,20 @@ public class Main {
         // Create a ZooManager object to handle all logic
         ZooManager zooManager = new ZooManager();
 
-        try {
+        // Output lines are streamed to the output file while the files are processed
+        try (OutputSink output = new FileOutputSink(outputFile)) {
+            zooManager.setOutput(output);
+
             // Load animals, people, and food data from input files
             zooManager.loadAnimals(animalsFile);
             zooManager.loadPersons(personsFile);
             zooManager.loadFoods(foodsFile);
 
-            // Execute commands from the commands file
-            zooManager.executeCommands(commandsFile);
-
-            // Write the final output to the output file
-            zooManager.writeOutput(outputFile);
+            // Execute commands from the commands file, on worker threads if a count was given
+            if (workers > 0)
+                zooManager.executeCommandsParallel(commandsFile, workers);
+            else
+                zooManager.executeCommandsWithResultCodes(commandsFile);
         } catch (IOException e) {
             // Catch file-related errors and print a message
             System.out.println("I/O Error: " + e.getMessage());
@@ -0,0 +1,15 @@
+import java.io.IOException;
+
+// Destination for the output lines of the zoo (list in memory or file)
+public interface OutputSink extends AutoCloseable {
+
+    // Writes one line of output
+    void write(String line);
+
+    // Pushes buffered lines to their destination
+    void flush() throws IOException;
+
+    // Flushes the remaining lines and releases the destination
+    @Override
+    void close() throws IOException;
+}
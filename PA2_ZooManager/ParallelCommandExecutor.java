@@ -0,0 +1,300 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs zoo commands on several worker threads and writes their output in file order
+// - Commands about the same animal go to the same worker; other commands are spread evenly
+// - Commands that use the food stock (feeding and listing) take a ticket in file order, and their
+//   stock operation waits for its turn, because whether a feed succeeds depends on every feed
+//   before it; the rest of the command, such as building its messages, runs in parallel
+// - Every command writes into its own buffer; a sequencer writes the buffers in file order
+// - After the first unexpected error no more commands are read, and the error is thrown by run
+public class ParallelCommandExecutor {
+
+    // Executes one command line, writing its output lines to the given sink
+    // The stock operation of the command must be done between turn.begin() and turn.end()
+    public interface CommandHandler {
+        void execute(String line, StockTurn turn, OutputSink out);
+    }
+
+    // The turn of one command at the food stock; a command has at most one turn
+    public interface StockTurn {
+        // Waits until the commands before this one are done with the food stock
+        void begin();
+
+        // Lets the next command use the food stock
+        void end();
+    }
+
+    // Turn of the commands that do not use the food stock
+    private static final StockTurn NO_TURN = new StockTurn() {
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void end() {
+        }
+    };
+
+    // Number of commands that may wait in the queue of one worker
+    private static final int QUEUE_CAPACITY = 1024;
+    // Number of commands that may be read but not written yet, which bounds memory
+    private static final int WINDOW = 8192;
+    // Task that tells a worker to stop
+    private static final Task STOP = new Task(-1, -1, null);
+
+    private final int workerCount;
+    private final CommandHandler handler;
+
+    public ParallelCommandExecutor(int workers, CommandHandler handler) {
+        if (workers < 1)
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workers);
+        this.workerCount = workers;
+        this.handler = handler;
+    }
+
+    // Reads all commands and waits until their output is written
+    public void run(BufferedReader reader, OutputSink output) throws IOException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Turnstile turnstile = new Turnstile();
+        Sequencer sequencer = new Sequencer(output, failure);
+        List<BlockingQueue<Task>> queues = new ArrayList<>();
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<Task> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            Worker worker = new Worker(queue, turnstile, sequencer, failure);
+            queues.add(queue);
+            workers.add(worker);
+            worker.thread.start();
+        }
+
+        try {
+            long sequence = 0;
+            long tickets = 0;
+            String line;
+            while (failure.get() == null && (line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue; // Skip empty lines
+                String[] parts = line.split(",");
+                long ticket = usesStock(parts[0]) ? tickets++ : -1;
+                int target = parts.length >= 3 ? spread(parts[2].hashCode()) % workerCount
+                        : (int) (sequence % workerCount);
+                sequencer.permits.acquire(); // Wait while too many commands are unwritten
+                queues.get(target).put(new Task(sequence++, ticket, line));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading commands");
+        } finally {
+            stop(queues, workers);
+        }
+
+        // Only unchecked errors are recorded
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+    }
+
+    // Sends the stop task to every worker and waits for them
+    private static void stop(List<BlockingQueue<Task>> queues, List<Worker> workers) {
+        boolean interrupted = false;
+        for (int i = 0; i < queues.size(); i++) {
+            while (true) {
+                try {
+                    queues.get(i).put(STOP);
+                    workers.get(i).thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Feeding and listing read or change the food stock
+    private static boolean usesStock(String op) {
+        return op.equals("Feed Animal") || op.equals("List Food Stock");
+    }
+
+    // Spreads the high bits of a hash and makes it positive
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    // One command with its place in the file and its stock ticket (-1 if it has none)
+    private static final class Task {
+        final long sequence;
+        final long ticket;
+        final String line;
+
+        Task(long sequence, long ticket, String line) {
+            this.sequence = sequence;
+            this.ticket = ticket;
+            this.line = line;
+        }
+    }
+
+    // Lets stock operations run one at a time in ticket order
+    private static final class Turnstile {
+        private long turn;
+
+        // Waits even when interrupted, since every later stock command depends on this one
+        synchronized void await(long ticket) {
+            boolean interrupted = false;
+            while (turn != ticket) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        synchronized void advance() {
+            turn++;
+            notifyAll();
+        }
+    }
+
+    // The turn of one stock command, used only by the worker that runs the command
+    private static final class Ticket implements StockTurn {
+        private static final int WAITING = 0;
+        private static final int INSIDE = 1;
+        private static final int DONE = 2;
+
+        private final Turnstile turnstile;
+        private final long number;
+        private int state = WAITING;
+
+        Ticket(Turnstile turnstile, long number) {
+            this.turnstile = turnstile;
+            this.number = number;
+        }
+
+        @Override
+        public void begin() {
+            if (state == DONE)
+                throw new IllegalStateException("The stock turn of this command is over");
+            if (state == WAITING) {
+                turnstile.await(number);
+                state = INSIDE;
+            }
+        }
+
+        @Override
+        public void end() {
+            if (state == INSIDE) {
+                turnstile.advance();
+                state = DONE;
+            }
+        }
+
+        // Passes the turn on even if the command did not use the stock or failed
+        void finish() {
+            if (state == WAITING) begin();
+            end();
+        }
+    }
+
+    // Writes the output of the commands in file order, whichever worker finishes first
+    private static final class Sequencer {
+        final Semaphore permits = new Semaphore(WINDOW);
+        private final OutputSink output;
+        private final AtomicReference<Throwable> failure;
+        private final List<List<String>> ready = new ArrayList<>(WINDOW);
+        private long next;
+        // Set when the output could not be written; later lines are dropped
+        private boolean broken;
+
+        Sequencer(OutputSink output, AtomicReference<Throwable> failure) {
+            this.output = output;
+            this.failure = failure;
+            for (int i = 0; i < WINDOW; i++) ready.add(null);
+        }
+
+        // Stores the lines of a command and writes every command that is now next in line
+        // The slots are freed even if writing fails, so the reader never waits for them forever
+        synchronized void complete(long sequence, List<String> lines) {
+            ready.set((int) (sequence % WINDOW), lines);
+            int slot = (int) (next % WINDOW);
+            while (ready.get(slot) != null) {
+                List<String> done = ready.set(slot, null);
+                next++;
+                permits.release();
+                slot = (int) (next % WINDOW);
+                if (broken) continue;
+                try {
+                    for (String line : done) output.write(line);
+                } catch (RuntimeException | Error e) {
+                    broken = true;
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }
+    }
+
+    // Worker thread that runs the commands of its queue in order
+    private final class Worker implements Runnable {
+        final Thread thread = new Thread(this, "zoo-worker");
+        private final BlockingQueue<Task> queue;
+        private final Turnstile turnstile;
+        private final Sequencer sequencer;
+        // First error that was not handled by the command handler, shared by all workers
+        private final AtomicReference<Throwable> failure;
+
+        Worker(BlockingQueue<Task> queue, Turnstile turnstile, Sequencer sequencer,
+               AtomicReference<Throwable> failure) {
+            this.queue = queue;
+            this.turnstile = turnstile;
+            this.sequencer = sequencer;
+            this.failure = failure;
+        }
+
+        // Every task that was queued is completed, so neither the reader nor the other
+        // workers wait for it forever, even after an error or an interrupt
+        @Override
+        public void run() {
+            boolean interrupted = false;
+            while (true) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+                if (task == STOP) break;
+                List<String> lines = new ArrayList<>(4);
+                try {
+                    execute(task, lines);
+                } finally {
+                    sequencer.complete(task.sequence, lines);
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        // Runs the command; after an unexpected error the output of the command is left empty
+        private void execute(Task task, List<String> lines) {
+            Ticket ticket = task.ticket >= 0 ? new Ticket(turnstile, task.ticket) : null;
+            try {
+                handler.execute(task.line, ticket != null ? ticket : NO_TURN, new ListOutputSink(lines));
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+                lines.clear();
+            } finally {
+                if (ticket != null) ticket.finish(); // The next stock command may run even after an error
+            }
+        }
+    }
+}
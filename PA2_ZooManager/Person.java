@@ -1,4 +1,3 @@
-import java.util.List;
 import java.util.Map;
 
 // Base abstract class for all people in the zoo (Visitor or Personnel)
@@ -21,16 +20,39 @@ public abstract class Person {
         return id;
     }
 
-    // Abstract method for visiting an animal
-    public abstract void visit(String animalName, Map<String, Animal> animals, List<String> output)
-            throws ZooException.AnimalNotFoundException;
+    // Visits an animal, throwing an exception if the animal is not found
+    public void visit(String animalName, Map<String, Animal> animals, OutputSink output)
+            throws ZooException.AnimalNotFoundException {
+        int result = tryVisit(animalName, animals, output);
+        if (result != ZooResult.OK)
+            throw new ZooException.AnimalNotFoundException(ZooResult.message(result, id, animalName));
+    }
 
-    // Abstract method for feeding an animal
-    public abstract void feed(String animalName, int mealCount, Map<String, Animal> animals,
-                              FoodStock stock, List<String> output)
+    // Feeds an animal, throwing the exception that matches the result
+    public void feed(String animalName, int mealCount, Map<String, Animal> animals,
+                     FoodSupply stock, OutputSink output)
             throws ZooException.UnauthorizedAccessException,
             ZooException.AnimalNotFoundException,
-            ZooException.NotEnoughFoodException;
+            ZooException.NotEnoughFoodException {
+        int result = tryFeed(animalName, mealCount, animals, stock, output);
+        switch (result) {
+            case ZooResult.OK:
+                return;
+            case ZooResult.UNAUTHORIZED:
+                throw new ZooException.UnauthorizedAccessException(ZooResult.message(result, id, animalName));
+            case ZooResult.ANIMAL_NOT_FOUND:
+                throw new ZooException.AnimalNotFoundException(ZooResult.message(result, id, animalName));
+            default:
+                throw new ZooException.NotEnoughFoodException(ZooResult.message(result, id, animalName));
+        }
+    }
+
+    // Abstract method for visiting an animal; returns ZooResult.OK or ANIMAL_NOT_FOUND
+    public abstract int tryVisit(String animalName, Map<String, Animal> animals, OutputSink output);
+
+    // Abstract method for feeding an animal; returns ZooResult.OK or an error code
+    public abstract int tryFeed(String animalName, int mealCount, Map<String, Animal> animals,
+                                FoodSupply stock, OutputSink output);
 }
 
 // ------------------ Visitor ------------------
@@ -41,21 +63,20 @@ class Visitor extends Person {
     }
 
     @Override
-    public void visit(String animalName, Map<String, Animal> animals, List<String> output)
-            throws ZooException.AnimalNotFoundException {
+    public int tryVisit(String animalName, Map<String, Animal> animals, OutputSink output) {
         Animal animal = animals.get(animalName); // Try to get the animal from the map
         if (animal == null)
-            throw new ZooException.AnimalNotFoundException("There are no animals with the name " + animalName + ".");
-        output.add(name + " tried  to register for a visit to " + animalName + "."); // Log the attempt
-        output.add(name + " successfully visited " + animalName + "."); // Log the success
+            return ZooResult.ANIMAL_NOT_FOUND;
+        output.write(name + " tried  to register for a visit to " + animalName + "."); // Log the attempt
+        output.write(name + " successfully visited " + animalName + "."); // Log the success
+        return ZooResult.OK;
     }
 
     @Override
-    public void feed(String animalName, int mealCount, Map<String, Animal> animals,
-                     FoodStock stock, List<String> output)
-            throws ZooException.UnauthorizedAccessException {
-        output.add(name + " tried to feed " + animalName); // Log the attempt
-        throw new ZooException.UnauthorizedAccessException("Visitors do not have the authority to feed animals.");
+    public int tryFeed(String animalName, int mealCount, Map<String, Animal> animals,
+                       FoodSupply stock, OutputSink output) {
+        output.write(name + " tried to feed " + animalName); // Log the attempt
+        return ZooResult.UNAUTHORIZED; // Visitors do not have the authority to feed animals
     }
 }
 
@@ -67,24 +88,23 @@ class Personnel extends Person {
     }
 
     @Override
-    public void visit(String animalName, Map<String, Animal> animals, List<String> output)
-            throws ZooException.AnimalNotFoundException {
+    public int tryVisit(String animalName, Map<String, Animal> animals, OutputSink output) {
         Animal animal = animals.get(animalName); // Try to get the animal
         if (animal == null)
-            throw new ZooException.AnimalNotFoundException("There are no animals with the name " + animalName + ".");
-        output.add(name + " attempts to clean " + animalName + "'s habitat."); // Log the attempt
-        output.add(name + " started cleaning " + animalName + "'s habitat."); // Log the start of cleaning
+            return ZooResult.ANIMAL_NOT_FOUND;
+        output.write(name + " attempts to clean " + animalName + "'s habitat."); // Log the attempt
+        output.write(name + " started cleaning " + animalName + "'s habitat."); // Log the start of cleaning
         animal.cleanHabitat(output); // Call the animal's cleaning method
+        return ZooResult.OK;
     }
 
     @Override
-    public void feed(String animalName, int mealCount, Map<String, Animal> animals,
-                     FoodStock stock, List<String> output)
-            throws ZooException.AnimalNotFoundException, ZooException.NotEnoughFoodException {
+    public int tryFeed(String animalName, int mealCount, Map<String, Animal> animals,
+                       FoodSupply stock, OutputSink output) {
         Animal animal = animals.get(animalName); // Try to get the animal
         if (animal == null)
-            throw new ZooException.AnimalNotFoundException("There are no animals with the name " + animalName + ".");
-        output.add(name + " attempts to feed " + animalName + "."); // Log the attempt
-        animal.feed(mealCount, stock, output); // Feed the animal
+            return ZooResult.ANIMAL_NOT_FOUND;
+        output.write(name + " attempts to feed " + animalName + "."); // Log the attempt
+        return animal.tryFeed(mealCount, stock, output); // Feed the animal
     }
 }
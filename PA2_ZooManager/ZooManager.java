@@ -8,14 +8,21 @@ public class ZooManager {
     // Map to hold person ID and corresponding Person object
     private Map<Integer, Person> people = new HashMap<>();
     // Food stock object for managing available food
-    private FoodStock stock;
-    // List to collect all output messages
-    private List<String> output = new ArrayList<>();
+    private FoodSupply stock;
+    // List to collect all output messages when they are written at the end
+    private List<String> lines = new ArrayList<>();
+    // Destination of the output messages (the list above unless streaming is used)
+    private OutputSink output = new ListOutputSink(lines);
+
+    // Streams output messages to the given sink instead of keeping them in memory
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
 
     // Loads animal information from file
     public void loadAnimals(String fileName) throws IOException {
-        output.add("***********************************");
-        output.add("***Initializing Animal information***");
+        output.write("***********************************");
+        output.write("***Initializing Animal information***");
         BufferedReader reader = new BufferedReader(new FileReader(fileName));
         String line;
         while ((line = reader.readLine()) != null) {
@@ -44,7 +51,7 @@ public class ZooManager {
             // Add the animal to the map if valid
             if (animal != null) {
                 animals.put(name, animal);
-                output.add("Added new " + type + " with name " + name + " aged " + age + ".");
+                output.write("Added new " + type + " with name " + name + " aged " + age + ".");
             }
         }
         reader.close();
@@ -52,8 +59,8 @@ public class ZooManager {
 
     // Loads people (visitors and personnel) from file
     public void loadPersons(String fileName) throws IOException {
-        output.add("***********************************");
-        output.add("***Initializing Visitor and Personnel information***");
+        output.write("***********************************");
+        output.write("***Initializing Visitor and Personnel information***");
         BufferedReader reader = new BufferedReader(new FileReader(fileName));
         String line;
         while ((line = reader.readLine()) != null) {
@@ -76,7 +83,7 @@ public class ZooManager {
             // Add person to the map if valid
             if (person != null) {
                 people.put(id, person);
-                output.add("Added new " + type + " with id " + id + " and name " + name + ".");
+                output.write("Added new " + type + " with id " + id + " and name " + name + ".");
             }
         }
         reader.close();
@@ -84,8 +91,8 @@ public class ZooManager {
 
     // Loads initial food stock from file
     public void loadFoods(String fileName) throws IOException {
-        output.add("***********************************");
-        output.add("***Initializing Food Stock***");
+        output.write("***********************************");
+        output.write("***Initializing Food Stock***");
         BufferedReader reader = new BufferedReader(new FileReader(fileName));
         double meat = 0, fish = 0, plant = 0;
         String line;
@@ -108,9 +115,9 @@ public class ZooManager {
         }
         // Create the FoodStock object with given values
         stock = new FoodStock(meat, fish, plant);
-        output.add("There are " + String.format(Locale.US, "%.3f", meat) + " kg of Meat in stock");
-        output.add("There are " + String.format(Locale.US, "%.3f", fish) + " kg of Fish in stock");
-        output.add("There are " + String.format(Locale.US, "%.3f", plant) + " kg of Plant in stock");
+        output.write("There are " + FoodStock.formatKgs(meat) + " kg of Meat in stock");
+        output.write("There are " + FoodStock.formatKgs(fish) + " kg of Fish in stock");
+        output.write("There are " + FoodStock.formatKgs(plant) + " kg of Plant in stock");
         reader.close();
     }
 
@@ -120,46 +127,149 @@ public class ZooManager {
         String line;
         while ((line = reader.readLine()) != null) {
             if (line.trim().isEmpty()) continue; // Skip empty lines
-            output.add("***********************************");
-            output.add("***Processing new Command***");
-            try {
-                String[] parts = line.split(",");
-                String op = parts[0];
-
-                if (op.equals("List Food Stock")) {
-                    output.add("Listing available Food Stock:");
-                    output.add(stock.getFormattedStock());
-                } else if (op.equals("Animal Visitation")) {
-                    int id = Integer.parseInt(parts[1]);
-                    String animalName = parts[2];
-                    Person p = getPersonById(id); // Find person by ID
-                    p.visit(animalName, animals, output); // Call visit method
-                } else if (op.equals("Feed Animal")) {
-                    int id = Integer.parseInt(parts[1]);
-                    String animalName = parts[2];
-                    int meals = Integer.parseInt(parts[3]);
-                    Person p = getPersonById(id); // Find person by ID
-                    p.feed(animalName, meals, animals, stock, output); // Call feed method
-                } else {
-                    output.add("Unknown command: " + line); // Invalid command
-                }
-
-            } catch (NumberFormatException e) {
-                // Handle case where number cannot be parsed
-                output.add("Error processing command: " + line);
-                output.add("Error:" + e.getMessage());
-            } catch (ZooException.PersonNotFoundException |
-                     ZooException.AnimalNotFoundException |
-                     ZooException.NotEnoughFoodException |
-                     ZooException.UnauthorizedAccessException e) {
-                // Catch custom zoo-related exceptions
-                output.add("Error: " + e.getMessage());
-            } catch (Exception e) {
-                // Catch any other unexpected exception
-                output.add("Unexpected error: " + e.getMessage());
-            }
+            output.write("***********************************");
+            output.write("***Processing new Command***");
+            processCommand(line, stock, output);
+        }
+        reader.close();
+        output.flush();
+    }
+
+    // Executes all commands like executeCommands, but the zoo operations return result codes
+    // instead of throwing exceptions, and error messages are only built when they are written.
+    // Lines with missing fields or numbers that are not plain digits go through processCommand,
+    // so their messages come from the same exceptions as before
+    public void executeCommandsWithResultCodes(String fileName) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) continue; // Skip empty lines
+            output.write("***********************************");
+            output.write("***Processing new Command***");
+            processCommandWithResultCodes(line, stock, output);
         }
         reader.close();
+        output.flush();
+    }
+
+    // Executes all commands like executeCommandsWithResultCodes, on several worker threads
+    // Commands are spread over the workers by animal name, food is taken from the stock in
+    // file order, and the output lines are written in file order, so the output is the same
+    // The stock operations take turns in file order, so the workers never race each other for the
+    // stock; it is a ConcurrentFoodStock so that other threads can read it while the commands run,
+    // and it stays in use after the commands
+    // Only the parsing, lookups and messages of the commands run in parallel, and a command does
+    // little of that next to the hand-offs between threads: test/ParallelScalingBenchmark measures
+    // whether the workers are faster than executeCommandsWithResultCodes on a given machine
+    public void executeCommandsParallel(String fileName, int workers) throws IOException {
+        if (!(stock instanceof ConcurrentFoodStock))
+            stock = new ConcurrentFoodStock(stock.get("meat"), stock.get("fish"), stock.get("plant"));
+        ConcurrentFoodStock shared = (ConcurrentFoodStock) stock;
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try {
+            ParallelCommandExecutor executor = new ParallelCommandExecutor(workers, (line, turn, out) -> {
+                out.write("***********************************");
+                out.write("***Processing new Command***");
+                processCommandWithResultCodes(line, new OrderedFoodStock(shared, turn), out);
+            });
+            executor.run(reader, output);
+        } finally {
+            reader.close();
+        }
+        output.flush();
+    }
+
+    // Executes one command line with result codes, writing its lines to the given sink
+    private void processCommandWithResultCodes(String line, FoodSupply stock, OutputSink output) {
+        String[] parts = line.split(",");
+        String op = parts.length > 0 ? parts[0] : ""; // A line of commas has no fields
+        try {
+            if (op.equals("Animal Visitation") && parts.length >= 3 && isPlainInt(parts[1])) {
+                int id = Integer.parseInt(parts[1]);
+                String animalName = parts[2];
+                Person p = people.get(id);
+                int result = p == null ? ZooResult.PERSON_NOT_FOUND : p.tryVisit(animalName, animals, output);
+                if (result != ZooResult.OK)
+                    output.write("Error: " + ZooResult.message(result, id, animalName));
+            } else if (op.equals("Feed Animal") && parts.length >= 4 && isPlainInt(parts[1]) && isPlainInt(parts[3])) {
+                int id = Integer.parseInt(parts[1]);
+                String animalName = parts[2];
+                int meals = Integer.parseInt(parts[3]);
+                Person p = people.get(id);
+                int result = p == null ? ZooResult.PERSON_NOT_FOUND
+                        : p.tryFeed(animalName, meals, animals, stock, output);
+                if (result != ZooResult.OK)
+                    output.write("Error: " + ZooResult.message(result, id, animalName));
+            } else {
+                processCommand(line, stock, output); // Other commands and malformed lines
+            }
+        } catch (Exception e) {
+            // Catch any other unexpected exception
+            output.write("Unexpected error: " + e.getMessage());
+        }
+    }
+
+    // Checks that a field is an optional sign and 1 to 9 ASCII digits, which always fits in an int
+    private static boolean isPlainInt(String field) {
+        int start = field.startsWith("-") || field.startsWith("+") ? 1 : 0;
+        int length = field.length() - start;
+        if (length < 1 || length > 9) return false;
+        for (int i = start; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    // Executes one command line, turning exceptions into error messages written to the given sink
+    private void processCommand(String line, FoodSupply stock, OutputSink output) {
+        try {
+            String[] parts = line.split(",");
+            String op = field(parts, 0);
+
+            if (op.equals("List Food Stock")) {
+                output.write("Listing available Food Stock:");
+                output.write(stock.getFormattedStock());
+            } else if (op.equals("Animal Visitation")) {
+                int id = Integer.parseInt(field(parts, 1));
+                String animalName = field(parts, 2);
+                Person p = getPersonById(id); // Find person by ID
+                p.visit(animalName, animals, output); // Call visit method
+            } else if (op.equals("Feed Animal")) {
+                int id = Integer.parseInt(field(parts, 1));
+                String animalName = field(parts, 2);
+                int meals = Integer.parseInt(field(parts, 3));
+                Person p = getPersonById(id); // Find person by ID
+                p.feed(animalName, meals, animals, stock, output); // Call feed method
+            } else {
+                output.write("Unknown command: " + line); // Invalid command
+            }
+
+        } catch (NumberFormatException e) {
+            // Handle case where number cannot be parsed
+            output.write("Error processing command: " + line);
+            output.write("Error:" + e.getMessage());
+        } catch (ZooException.PersonNotFoundException |
+                 ZooException.AnimalNotFoundException |
+                 ZooException.NotEnoughFoodException |
+                 ZooException.UnauthorizedAccessException e) {
+            // Catch custom zoo-related exceptions
+            output.write("Error: " + e.getMessage());
+        } catch (Exception e) {
+            // Catch any other unexpected exception
+            output.write("Unexpected error: " + e.getMessage());
+        }
+    }
+
+    // Returns a field of a command line or throws for a missing one. The message is written here
+    // instead of coming from an array index exception, whose text depends on the Java version and
+    // which the JVM may throw without a message once the code is compiled
+    private static String field(String[] parts, int index) throws ZooException.InvalidCommandFormatException {
+        if (index >= parts.length) {
+            throw new ZooException.InvalidCommandFormatException(
+                    "Index " + index + " out of bounds for length " + parts.length);
+        }
+        return parts[index];
     }
 
     // Helper method to get person by ID or throw exception
@@ -173,9 +283,63 @@ public class ZooManager {
     // Writes collected output lines to the output file
     public void writeOutput(String fileName) throws IOException {
         PrintWriter writer = new PrintWriter(fileName);
-        for (String line : output) {
+        for (String line : lines) {
             writer.println(line); // Write each line to file
         }
         writer.close();
     }
+
+    // Food stock of one parallel command: the shared stock is used only during the stock turn
+    // of the command, and the listing is formatted after the turn from a snapshot
+    private static final class OrderedFoodStock implements FoodSupply {
+        private final ConcurrentFoodStock shared;
+        private final ParallelCommandExecutor.StockTurn turn;
+
+        OrderedFoodStock(ConcurrentFoodStock shared, ParallelCommandExecutor.StockTurn turn) {
+            this.shared = shared;
+            this.turn = turn;
+        }
+
+        @Override
+        public int tryConsume(int food, double amount) {
+            turn.begin();
+            try {
+                return shared.tryConsume(food, amount);
+            } finally {
+                turn.end();
+            }
+        }
+
+        @Override
+        public int tryConsume(int first, double firstAmount, int second, double secondAmount) {
+            turn.begin();
+            try {
+                return shared.tryConsume(first, firstAmount, second, secondAmount);
+            } finally {
+                turn.end();
+            }
+        }
+
+        @Override
+        public double get(String type) {
+            turn.begin();
+            try {
+                return shared.get(type);
+            } finally {
+                turn.end();
+            }
+        }
+
+        @Override
+        public String getFormattedStock() {
+            FoodStock snapshot;
+            turn.begin();
+            try {
+                snapshot = shared.snapshot();
+            } finally {
+                turn.end();
+            }
+            return snapshot.getFormattedStock();
+        }
+    }
 }
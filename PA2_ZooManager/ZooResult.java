@@ -0,0 +1,34 @@
+// Result codes returned by the exception-free zoo operations, with their messages
+public final class ZooResult {
+
+    public static final int OK = 0;
+    public static final int PERSON_NOT_FOUND = 1;
+    public static final int ANIMAL_NOT_FOUND = 2;
+    public static final int UNAUTHORIZED = 3;
+    public static final int NOT_ENOUGH_MEAT = 4;
+    public static final int NOT_ENOUGH_FISH = 5;
+    public static final int NOT_ENOUGH_PLANT = 6;
+
+    private ZooResult() {
+    }
+
+    // Builds the error message of a result code (the same text as the matching ZooException)
+    public static String message(int code, int personId, String animalName) {
+        switch (code) {
+            case PERSON_NOT_FOUND:
+                return "There are no visitors or personnel with the id " + personId;
+            case ANIMAL_NOT_FOUND:
+                return "There are no animals with the name " + animalName + ".";
+            case UNAUTHORIZED:
+                return "Visitors do not have the authority to feed animals.";
+            case NOT_ENOUGH_MEAT:
+                return "Not enough Meat";
+            case NOT_ENOUGH_FISH:
+                return "Not enough Fish";
+            case NOT_ENOUGH_PLANT:
+                return "Not enough Plant";
+            default:
+                throw new IllegalArgumentException("Not an error code: " + code);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// This test checks that ConcurrentFoodStock never hands out more food than it has when many
+// threads take from it at once, that a two-food consumption is all-or-nothing, also to a thread
+// that reads the stock meanwhile, and that one thread gets the same result codes and the same
+// stock listing as from FoodStock
+public class ConcurrentFoodStockTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 200000;
+
+    public static void main(String[] args) throws InterruptedException {
+        drainFromManyThreads();
+        sameAsFoodStock();
+        System.out.println("ConcurrentFoodStockTest passed");
+    }
+
+    // Every thread takes more than its share, so the stock runs out exactly
+    private static void drainFromManyThreads() throws InterruptedException {
+        ConcurrentFoodStock stock = new ConcurrentFoodStock(10000, 5000, 10000);
+        AtomicLong meatAndPlant = new AtomicLong();
+        AtomicLong fish = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ROUNDS; i++) {
+                        if (stock.tryConsume(FoodStock.MEAT, 0.5, FoodStock.PLANT, 0.25) == ZooResult.OK)
+                            meatAndPlant.incrementAndGet();
+                        if (stock.tryConsume(FoodStock.FISH, 0.125) == ZooResult.OK)
+                            fish.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        // Every meat taken comes with half as much plant, so no snapshot may show one without the other
+        Thread reader = new Thread(() -> {
+            try {
+                start.await();
+                while (stock.get("meat") > 0) {
+                    FoodStock seen = stock.snapshot();
+                    double meatTaken = 10000 - seen.get("meat");
+                    double plantTaken = 10000 - seen.get("plant");
+                    if (meatTaken != 2 * plantTaken)
+                        throw new AssertionError("snapshot took " + meatTaken + " meat but " + plantTaken + " plant");
+                }
+            } catch (Throwable e) {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            }
+        });
+        reader.start();
+        threads.add(reader);
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        TestSupport.check(failures.isEmpty(), "worker failed: " + failures);
+
+        // The amounts are exact in binary, so the totals must match to the last bit
+        TestSupport.check(meatAndPlant.get() == 20000, "meat and plant taken " + meatAndPlant + " times, expected 20000");
+        TestSupport.check(fish.get() == 40000, "fish taken " + fish + " times, expected 40000");
+        TestSupport.check(stock.get("meat") == 0, "meat left: " + stock.get("meat"));
+        TestSupport.check(stock.get("plant") == 5000, "plant left: " + stock.get("plant"));
+        TestSupport.check(stock.get("fish") == 0, "fish left: " + stock.get("fish"));
+        TestSupport.check(stock.tryConsume(FoodStock.PLANT, 1, FoodStock.MEAT, 0.001) == ZooResult.NOT_ENOUGH_MEAT,
+                "a short second food must fail the whole consumption");
+        TestSupport.check(stock.get("plant") == 5000, "a failed consumption took plant");
+    }
+
+    // Random amounts that are not exact in binary, including the same food twice
+    private static void sameAsFoodStock() {
+        Random random = new Random(23);
+        FoodStock plain = new FoodStock(1234.567, 89.1, 456.789);
+        ConcurrentFoodStock concurrent = new ConcurrentFoodStock(1234.567, 89.1, 456.789);
+        for (int i = 0; i < 100000; i++) {
+            int first = random.nextInt(3);
+            double firstAmount = random.nextInt(5000) / 1000.0 * 0.3;
+            int expected;
+            int actual;
+            if (random.nextBoolean()) {
+                expected = plain.tryConsume(first, firstAmount);
+                actual = concurrent.tryConsume(first, firstAmount);
+            } else {
+                int second = random.nextInt(3);
+                double secondAmount = random.nextInt(5000) / 1000.0 * 0.7;
+                expected = plain.tryConsume(first, firstAmount, second, secondAmount);
+                actual = concurrent.tryConsume(first, firstAmount, second, secondAmount);
+            }
+            TestSupport.check(expected == actual, "step " + i + ": result " + actual + ", FoodStock gave " + expected);
+            TestSupport.check(plain.getFormattedStock().equals(concurrent.getFormattedStock()),
+                    "step " + i + ": stock\n" + concurrent.getFormattedStock() + "\nFoodStock has\n"
+                            + plain.getFormattedStock());
+        }
+        for (String type : new String[] {"meat", "fish", "plant"}) {
+            TestSupport.check(plain.get(type) == concurrent.get(type),
+                    type + " left " + concurrent.get(type) + ", FoodStock has " + plain.get(type));
+        }
+    }
+}
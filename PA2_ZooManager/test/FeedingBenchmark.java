@@ -0,0 +1,139 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+
+// Measures feeds per second with the meal amounts worked out at load time and formatKgs, against
+// the way a feed worked before: the amount from the age formula on every feed, the food named by
+// a string that the stock lower-cases and switches on, and String.format for the kgs
+// Both ways feed the same animals and meal counts from a stock that never runs out, and every
+// amount formatKgs writes must equal String.format; then the same number of feed commands runs
+// through executeCommandsWithResultCodes into a file
+// Run with: java -cp out FeedingBenchmark [feeds] [rounds]
+public class FeedingBenchmark {
+
+    private static final int ANIMALS = 2000;
+    private static final int PEOPLE = 500;
+    private static final double START = 1e12;
+    private static final String[] FOODS = {"Meat", "Plant", "Fish", "Meat"};
+
+    // The stock as it was: one field per food, found by name
+    private static final class NamedStock {
+        private double meat = START;
+        private double fish = START;
+        private double plant = START;
+
+        void consume(String type, double amount) {
+            switch (type.toLowerCase()) {
+                case "meat":
+                    if (meat < amount) throw new IllegalStateException("Not enough Meat");
+                    meat -= amount;
+                    break;
+                case "fish":
+                    if (fish < amount) throw new IllegalStateException("Not enough Fish");
+                    fish -= amount;
+                    break;
+                case "plant":
+                    if (plant < amount) throw new IllegalStateException("Not enough Plant");
+                    plant -= amount;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown food type: " + type);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int feeds = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File dir = Files.createTempDirectory("zoo-feeding").toFile();
+        File animals = TestSupport.animals(dir, ANIMALS);
+        File persons = TestSupport.persons(dir, PEOPLE);
+        File foods = TestSupport.foods(dir, "1e12");
+        File commands = TestSupport.generate(dir, "feeds.txt", feeds, (i, random) -> {
+            int personnel = 1 + random.nextInt(PEOPLE - 1);
+            if (personnel % 5 == 0) personnel++; // Every fifth person is a visitor
+            return "Feed Animal," + personnel + ",Animal" + random.nextInt(ANIMALS) + "," + (1 + random.nextInt(4));
+        });
+
+        // The kinds and ages of the animals file, and the amounts worked out from them once
+        Random ages = new Random("animals.txt".hashCode());
+        int[] age = new int[ANIMALS];
+        double[] perMeal = new double[ANIMALS];
+        for (int a = 0; a < ANIMALS; a++) {
+            age[a] = 5 + ages.nextInt(30);
+            perMeal[a] = mealOf(a % 4, age[a]);
+        }
+        int[] animal = new int[feeds];
+        int[] meals = new int[feeds];
+        Random random = new Random(25);
+        for (int i = 0; i < feeds; i++) {
+            animal[i] = random.nextInt(ANIMALS);
+            meals[i] = 1 + random.nextInt(4);
+        }
+        for (int i = 0; i < Math.min(feeds, 1000000); i++) {
+            double total = perMeal[animal[i]] * meals[i];
+            TestSupport.check(FoodStock.formatKgs(total).equals(String.format(Locale.US, "%.3f", total)),
+                    "formatKgs gives other text than String.format for " + total);
+        }
+
+        System.out.println(feeds + " feeds");
+        for (int round = 0; round < rounds; round++) {
+            FoodStock stock = new FoodStock(START, START, START);
+            int[] index = {FoodStock.MEAT, FoodStock.PLANT, FoodStock.FISH, FoodStock.MEAT};
+            long length = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < feeds; i++) {
+                int a = animal[i];
+                double total = perMeal[a] * meals[i];
+                if (stock.tryConsume(index[a % 4], total) != ZooResult.OK) throw new AssertionError("the stock ran out");
+                length += FoodStock.formatKgs(total).length();
+            }
+            long planned = System.nanoTime() - start;
+
+            NamedStock named = new NamedStock();
+            long namedLength = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < feeds; i++) {
+                int a = animal[i];
+                double total = mealOf(a % 4, age[a]) * meals[i];
+                named.consume(FOODS[a % 4], total);
+                namedLength += String.format(Locale.US, "%.3f", total).length();
+            }
+            long formatted = System.nanoTime() - start;
+            TestSupport.check(length == namedLength, "the two ways wrote other amounts");
+            TestSupport.check(stock.get("meat") == named.meat && stock.get("fish") == named.fish
+                    && stock.get("plant") == named.plant, "the two ways took other amounts");
+
+            File out = new File(dir, "feeds.out");
+            long commandNanos;
+            try (OutputSink output = new FileOutputSink(out.getPath())) {
+                ZooManager zoo = new ZooManager();
+                zoo.setOutput(output);
+                zoo.loadAnimals(animals.getPath());
+                zoo.loadPersons(persons.getPath());
+                zoo.loadFoods(foods.getPath());
+                start = System.nanoTime();
+                zoo.executeCommandsWithResultCodes(commands.getPath());
+                commandNanos = System.nanoTime() - start;
+            }
+            System.out.printf("round %d: millions of feeds per second: plan and formatKgs %.2f,"
+                            + " formula, food name and String.format %.2f, feed commands %.2f%n", round,
+                    feeds * 1e3 / planned, feeds * 1e3 / formatted, feeds * 1e3 / commandNanos);
+        }
+        for (File file : dir.listFiles()) file.delete();
+        dir.delete();
+    }
+
+    // The kgs of one meal by kind and age, as Lion, Elephant, Penguin and Chimpanzee work them
+    // out; a chimpanzee's meal here is its meat half, the plant half is the same amount
+    private static double mealOf(int kind, int age) {
+        switch (kind) {
+            case 0: return 5.0 + 0.25 * (age - 5);
+            case 1: return 10.0 + 0.18 * (age - 20);
+            case 2: return 3.0 + 0.04 * (age - 4);
+            default: return (6.0 + 0.15 * (age - 10)) / 2.0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+// Measures the consumptions per second of ConcurrentFoodStock against a FoodStock behind one lock,
+// for 1 to 8 threads that all take from the same stock, and of a plain FoodStock on one thread
+// Every thread feeds like the animals do: meat, fish, plant, and meat with plant together; the
+// amounts are exact in binary, so the stock left must match the consumptions that succeeded
+// Run with: java -cp out FoodStockContentionBenchmark [consumptions per thread] [rounds]
+public class FoodStockContentionBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final double START = 1e12;
+
+    // FoodStock with every method behind the lock of the wrapper, as a shared stock was before
+    private static final class LockedFoodStock implements FoodSupply {
+        private final FoodStock stock = new FoodStock(START, START, START);
+
+        @Override
+        public synchronized int tryConsume(int food, double amount) {
+            return stock.tryConsume(food, amount);
+        }
+
+        @Override
+        public synchronized int tryConsume(int first, double firstAmount, int second, double secondAmount) {
+            return stock.tryConsume(first, firstAmount, second, secondAmount);
+        }
+
+        @Override
+        public synchronized double get(String type) {
+            return stock.get(type);
+        }
+
+        @Override
+        public synchronized String getFormattedStock() {
+            return stock.getFormattedStock();
+        }
+    }
+
+    private interface Supply {
+        FoodSupply make();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        System.out.println(count + " consumptions per thread, " + Runtime.getRuntime().availableProcessors() + " processors");
+
+        for (int round = 0; round < rounds; round++) {
+            StringBuilder row = new StringBuilder("round " + round + ": million per second");
+            row.append(String.format(", plain FoodStock 1 thread %.1f",
+                    run(() -> new FoodStock(START, START, START), 1, count)));
+            for (int threads : THREADS) {
+                double concurrent = run(() -> new ConcurrentFoodStock(START, START, START), threads, count);
+                double locked = run(LockedFoodStock::new, threads, count);
+                row.append(String.format(" | %d threads: concurrent %.1f, locked %.1f", threads, concurrent, locked));
+            }
+            System.out.println(row);
+        }
+    }
+
+    // Runs the threads on a new stock and returns the millions of consumptions per second
+    private static double run(Supply supply, int threads, int count) throws InterruptedException {
+        FoodSupply stock = supply.make();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    int result;
+                    switch (i & 3) {
+                        case 0: result = stock.tryConsume(FoodStock.MEAT, 0.5); break;
+                        case 1: result = stock.tryConsume(FoodStock.FISH, 0.25); break;
+                        case 2: result = stock.tryConsume(FoodStock.PLANT, 0.125); break;
+                        default: result = stock.tryConsume(FoodStock.MEAT, 0.5, FoodStock.PLANT, 0.125); break;
+                    }
+                    if (result != ZooResult.OK) throw new AssertionError("the stock ran out");
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        long nanos = System.nanoTime() - begin;
+
+        // Every four consumptions take 1 kg of meat, 0.25 kg of fish and 0.25 kg of plant
+        double rounds = (double) threads * (count / 4);
+        TestSupport.check(stock.get("meat") == START - rounds && stock.get("fish") == START - rounds * 0.25
+                && stock.get("plant") == START - rounds * 0.25, "the stock does not match the consumptions");
+        return (double) threads * count * 1000 / nanos;
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+// This test checks that ParallelCommandExecutor writes the output in file order, runs the stock
+// operations in file order, and throws the first unexpected error of a handler or of the output
+// on the reading thread instead of waiting forever
+public class ParallelCommandExecutorTest {
+
+    private static final int COMMANDS = 50000;
+
+    public static void main(String[] args) throws Exception {
+        keepsFileOrder();
+        throwsHandlerError();
+        throwsOutputError();
+        System.out.println("ParallelCommandExecutorTest passed");
+    }
+
+    // Every feed appends its number to the stock log in its turn, so the log must be in file order
+    private static void keepsFileOrder() throws Exception {
+        List<Long> stockLog = new ArrayList<>();
+        List<String> output = new ArrayList<>();
+        ParallelCommandExecutor executor = new ParallelCommandExecutor(8, (line, turn, out) -> {
+            String[] parts = line.split(",");
+            if (parts[0].equals("Feed Animal")) {
+                turn.begin();
+                try {
+                    stockLog.add(Long.parseLong(parts[1]));
+                } finally {
+                    turn.end();
+                }
+            }
+            out.write(line);
+        });
+        executor.run(commands(), new ListOutputSink(output));
+
+        TestSupport.check(output.size() == COMMANDS, "wrote " + output.size() + " lines");
+        long feeds = 0;
+        for (int i = 0; i < COMMANDS; i++) {
+            TestSupport.check(output.get(i).equals(command(i)), "line " + i + " is " + output.get(i));
+            if (i % 3 == 0) {
+                TestSupport.check(stockLog.get((int) feeds) == i, "stock turn " + feeds + " went to " + stockLog.get((int) feeds));
+                feeds++;
+            }
+        }
+        TestSupport.check(stockLog.size() == feeds, "stock used " + stockLog.size() + " times, expected " + feeds);
+    }
+
+    // A handler error stops the run, even when the failing command never takes its stock turn
+    private static void throwsHandlerError() throws Exception {
+        IllegalStateException expected = new IllegalStateException("handler failed");
+        ParallelCommandExecutor executor = new ParallelCommandExecutor(4, (line, turn, out) -> {
+            if (line.equals(command(3000))) throw expected;
+            out.write(line);
+        });
+        try {
+            executor.run(commands(), new ListOutputSink(new ArrayList<>()));
+            throw new AssertionError("the handler error was not thrown");
+        } catch (IllegalStateException e) {
+            TestSupport.check(e == expected, "threw " + e);
+        }
+    }
+
+    // An output error frees the waiting commands and is thrown by run
+    private static void throwsOutputError() throws Exception {
+        IllegalStateException expected = new IllegalStateException("disk full");
+        OutputSink broken = new OutputSink() {
+            private int written;
+
+            @Override
+            public void write(String line) {
+                if (++written == 100) throw expected;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ParallelCommandExecutor executor = new ParallelCommandExecutor(4, (line, turn, out) -> out.write(line));
+        try {
+            executor.run(commands(), broken);
+            throw new AssertionError("the output error was not thrown");
+        } catch (IllegalStateException e) {
+            TestSupport.check(e == expected, "threw " + e);
+        }
+    }
+
+    // Every third command feeds, and the animals are spread over a few names
+    private static BufferedReader commands() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < COMMANDS; i++) {
+            text.append(command(i)).append('\n');
+        }
+        return new BufferedReader(new StringReader(text.toString()));
+    }
+
+    private static String command(int i) {
+        String op = i % 3 == 0 ? "Feed Animal" : "Animal Visitation";
+        return op + "," + i + ",Animal" + (i % 7) + ",1";
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+// Measures executeCommandsParallel against executeCommandsWithResultCodes for 1 to 8 workers
+// The zoo and the commands are generated: feeds, visits, stock listings and malformed lines,
+// about animals spread over the workers; every run must write the same bytes as the single thread
+// Run with: java -cp out ParallelScalingBenchmark [commands] [rounds]
+public class ParallelScalingBenchmark {
+
+    private static final int ANIMALS = 2000;
+    private static final int PEOPLE = 500;
+    private static final int[] WORKERS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws IOException {
+        int commands = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File dir = Files.createTempDirectory("zoo-scaling").toFile();
+        File animals = TestSupport.animals(dir, ANIMALS);
+        File persons = TestSupport.persons(dir, PEOPLE);
+        File foods = TestSupport.foods(dir, "1e7");
+        File lines = TestSupport.generate(dir, "commands.txt", commands, (i, random) -> {
+            int kind = random.nextInt(100);
+            String animal = "Animal" + random.nextInt(ANIMALS + 20); // A few animals do not exist
+            int person = random.nextInt(PEOPLE);
+            if (kind < 55) return "Feed Animal," + person + "," + animal + "," + (1 + random.nextInt(4));
+            if (kind < 90) return "Animal Visitation," + person + "," + animal;
+            if (kind < 95) return "List Food Stock";
+            return "Feed Animal," + person; // Missing fields
+        });
+
+        System.out.println(commands + " commands, " + Runtime.getRuntime().availableProcessors() + " processors");
+        byte[] expected = null;
+        for (int round = 0; round < rounds; round++) {
+            File out = new File(dir, "single.out");
+            long single = run(animals, persons, foods, lines, out, 0);
+            if (expected == null) expected = Files.readAllBytes(out.toPath());
+            StringBuilder row = new StringBuilder("round " + round + ": single " + single + " ms");
+            for (int workers : WORKERS) {
+                File parallelOut = new File(dir, "parallel" + workers + ".out");
+                long millis = run(animals, persons, foods, lines, parallelOut, workers);
+                TestSupport.check(Arrays.equals(expected, Files.readAllBytes(parallelOut.toPath())),
+                        workers + " workers wrote other output than the single thread");
+                row.append(", ").append(workers).append(" workers ").append(millis).append(" ms");
+            }
+            System.out.println(row);
+        }
+        for (File file : dir.listFiles()) file.delete();
+        dir.delete();
+    }
+
+    // Runs the commands into the file and returns the milliseconds spent on them, loading excluded
+    private static long run(File animals, File persons, File foods, File commands, File out, int workers)
+            throws IOException {
+        ZooManager zoo = new ZooManager();
+        try (OutputSink output = new FileOutputSink(out.getPath())) {
+            zoo.setOutput(output);
+            zoo.loadAnimals(animals.getPath());
+            zoo.loadPersons(persons.getPath());
+            zoo.loadFoods(foods.getPath());
+            long start = System.nanoTime();
+            if (workers > 0)
+                zoo.executeCommandsParallel(commands.getPath(), workers);
+            else
+                zoo.executeCommandsWithResultCodes(commands.getPath());
+            return (System.nanoTime() - start) / 1000000;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+// Measures executeCommandsWithResultCodes against executeCommands, which throws an exception
+// for every failed command, on generated files where 0 to 90 percent of the commands fail
+// The failures are unknown people, unknown animals and visitors who try to feed; the other
+// commands are feeds by personnel and visits; both engines must write the same bytes
+// Run with: java -cp out ResultCodeBenchmark [commands] [rounds]
+public class ResultCodeBenchmark {
+
+    private static final int ANIMALS = 2000;
+    private static final int PEOPLE = 500;
+    private static final int[] ERROR_PERCENTS = {0, 25, 50, 90};
+
+    public static void main(String[] args) throws IOException {
+        int commands = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        File dir = Files.createTempDirectory("zoo-errors").toFile();
+        File animals = TestSupport.animals(dir, ANIMALS);
+        File persons = TestSupport.persons(dir, PEOPLE);
+        File foods = TestSupport.foods(dir, "1e9");
+        File[] files = new File[ERROR_PERCENTS.length];
+        for (int f = 0; f < files.length; f++) {
+            int errors = ERROR_PERCENTS[f];
+            files[f] = TestSupport.generate(dir, "commands" + errors + ".txt", commands,
+                    (i, random) -> line(random, random.nextInt(100) < errors));
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            StringBuilder row = new StringBuilder("round " + round + ": ms with exceptions / result codes");
+            for (int f = 0; f < files.length; f++) {
+                File thrown = new File(dir, "exceptions.out");
+                File coded = new File(dir, "codes.out");
+                long exceptions = run(animals, persons, foods, files[f], thrown, false);
+                long codes = run(animals, persons, foods, files[f], coded, true);
+                TestSupport.check(Arrays.equals(Files.readAllBytes(thrown.toPath()), Files.readAllBytes(coded.toPath())),
+                        "the engines wrote other output for " + ERROR_PERCENTS[f] + "% errors");
+                row.append(", ").append(ERROR_PERCENTS[f]).append("% errors ")
+                        .append(exceptions).append(" / ").append(codes);
+            }
+            System.out.println(row);
+        }
+        for (File file : dir.listFiles()) file.delete();
+        dir.delete();
+    }
+
+    // Makes a command that succeeds, or one that fails in one of three ways
+    private static String line(Random random, boolean failing) {
+        int animal = random.nextInt(ANIMALS);
+        int personnel = 1 + random.nextInt(PEOPLE - 1);
+        if (personnel % 5 == 0) personnel++; // Every fifth person is a visitor
+        if (!failing) {
+            if (random.nextBoolean()) return "Feed Animal," + personnel + ",Animal" + animal + "," + (1 + random.nextInt(4));
+            return "Animal Visitation," + personnel + ",Animal" + animal;
+        }
+        switch (random.nextInt(3)) {
+            case 0: return "Animal Visitation," + (PEOPLE + random.nextInt(1000)) + ",Animal" + animal;
+            case 1: return "Feed Animal," + personnel + ",Missing" + animal + ",2";
+            default: return "Feed Animal," + 5 * random.nextInt(PEOPLE / 5) + ",Animal" + animal + ",1";
+        }
+    }
+
+    // Runs the commands into the file and returns the milliseconds spent on them, loading excluded
+    private static long run(File animals, File persons, File foods, File commands, File out, boolean resultCodes)
+            throws IOException {
+        ZooManager zoo = new ZooManager();
+        try (OutputSink output = new FileOutputSink(out.getPath())) {
+            zoo.setOutput(output);
+            zoo.loadAnimals(animals.getPath());
+            zoo.loadPersons(persons.getPath());
+            zoo.loadFoods(foods.getPath());
+            System.gc();
+            long start = System.nanoTime();
+            if (resultCodes)
+                zoo.executeCommandsWithResultCodes(commands.getPath());
+            else
+                zoo.executeCommands(commands.getPath());
+            return (System.nanoTime() - start) / 1000000;
+        }
+    }
+}
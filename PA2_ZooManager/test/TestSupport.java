@@ -0,0 +1,54 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+// Helpers shared by the tests and benchmarks of this folder
+// Each of them is a class with a main method; build and run one with:
+//   javac -d out *.java test/*.java && java -cp out <ClassName>
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    // Fails the test with the message when the condition does not hold
+    static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    // Makes one line of a generated file from its index and the random numbers of that file
+    interface Line {
+        String make(int index, Random random);
+    }
+
+    // Writes a generated file of count lines into the directory and returns it
+    // Every file has its own random numbers, seeded by its name, so the same name gives the same lines
+    static File generate(File dir, String name, int count, Line line) throws IOException {
+        File file = new File(dir, name);
+        file.deleteOnExit();
+        Random random = new Random(name.hashCode());
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            for (int i = 0; i < count; i++) writer.println(line.make(i, random));
+        }
+        return file;
+    }
+
+    // Writes animals named Animal0 upward, the four kinds in turn
+    static File animals(File dir, int count) throws IOException {
+        String[] types = {"Lion", "Elephant", "Penguin", "Chimpanzee"};
+        return generate(dir, "animals.txt", count,
+                (i, random) -> types[i % types.length] + ",Animal" + i + "," + (5 + random.nextInt(30)));
+    }
+
+    // Writes people with the IDs 0 upward; every fifth one is a visitor, the others are personnel
+    static File persons(File dir, int count) throws IOException {
+        return generate(dir, "persons.txt", count,
+                (i, random) -> (i % 5 == 0 ? "Visitor" : "Personnel") + ",Person" + i + "," + i);
+    }
+
+    // Writes the same amount of every food
+    static File foods(File dir, String kgs) throws IOException {
+        String[] foods = {"Meat", "Fish", "Plant"};
+        return generate(dir, "foods.txt", foods.length, (i, random) -> foods[i] + "," + kgs);
+    }
+}